@@ -0,0 +1,44 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar. Takes the same arguments as the JMH command line and
+ * runs the selected benchmarks twice: once for throughput, then again with the gc profiler
+ * (the same as -prof gc) for allocation rates. The two passes are kept apart so the
+ * profiler's overhead does not leak into the throughput numbers.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options;
+        try {
+            options = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.err.println("Error parsing command line: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        try {
+            System.out.println("# Throughput");
+            new Runner(options).run();
+
+            System.out.println("# Allocation (-prof gc)");
+            new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+        } catch (RunnerException e) {
+            System.err.println("Benchmark run failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package benchmark;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the ChessGame rule checks. One operation runs the check on every position of the
+ * phase, for the team whose turn it is.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameBenchmark {
+    @Param
+    public Positions phase;
+
+    private ChessGame[] games;
+    private ChessPosition[][] teamPositions;
+    private ChessMove[] moves;
+    private ChessMove[] reverseMoves;
+
+    @Setup
+    public void setup() throws InvalidMoveException {
+        games = phase.games().toArray(new ChessGame[0]);
+        teamPositions = new ChessPosition[games.length][];
+        moves = new ChessMove[games.length];
+        reverseMoves = new ChessMove[games.length];
+
+        for (int i = 0; i < games.length; i++) {
+            teamPositions[i] = teamPositions(games[i]);
+            moves[i] = reversibleMove(games[i]);
+            reverseMoves[i] = new ChessMove(moves[i].getEndPosition(), moves[i].getStartPosition(), null);
+        }
+    }
+
+    @Benchmark
+    public void validMoves(Blackhole blackhole) {
+        for (int i = 0; i < games.length; i++) {
+            for (ChessPosition position : teamPositions[i]) {
+                blackhole.consume(games[i].validMoves(position));
+            }
+        }
+    }
+
+    @Benchmark
+    public void isInCheck(Blackhole blackhole) {
+        for (ChessGame game : games) {
+            blackhole.consume(game.isInCheck(game.getTeamTurn()));
+        }
+    }
+
+    /**
+     * evaluateStatus caches its result by position key, so asking about an unchanged position
+     * would only time a cache hit. Each operation instead checks the position, makes the
+     * reversible move, checks that position, and moves back: the cache only ever holds the
+     * position just left, so both checks are computed. The makeMove benchmark times the
+     * moves on their own.
+     */
+    @Benchmark
+    public void isInCheckmate(Blackhole blackhole) throws InvalidMoveException {
+        for (int i = 0; i < games.length; i++) {
+            ChessGame game = games[i];
+            ChessGame.TeamColor team = game.getTeamTurn();
+            blackhole.consume(game.isInCheckmate(team));
+            game.makeMove(moves[i]);
+            game.setTeamTurn(team);
+            blackhole.consume(game.isInCheckmate(team));
+            game.makeMove(reverseMoves[i]);
+            game.setTeamTurn(team);
+        }
+    }
+
+    // Checks two positions per game and operation, as isInCheckmate does
+    @Benchmark
+    public void isInStalemate(Blackhole blackhole) throws InvalidMoveException {
+        for (int i = 0; i < games.length; i++) {
+            ChessGame game = games[i];
+            ChessGame.TeamColor team = game.getTeamTurn();
+            blackhole.consume(game.isInStalemate(team));
+            game.makeMove(moves[i]);
+            game.setTeamTurn(team);
+            blackhole.consume(game.isInStalemate(team));
+            game.makeMove(reverseMoves[i]);
+            game.setTeamTurn(team);
+        }
+    }
+
+    // Asks about an unchanged position, which after the first call is a cache hit
+    @Benchmark
+    public void evaluateStatusCached(Blackhole blackhole) {
+        for (ChessGame game : games) {
+            blackhole.consume(game.evaluateStatus());
+        }
+    }
+
+    /**
+     * Makes a move and then moves the same piece back, handing the turn back to its team in
+     * between, so every operation starts from the same positions
+     */
+    @Benchmark
+    public void makeMove() throws InvalidMoveException {
+        for (int i = 0; i < games.length; i++) {
+            ChessGame.TeamColor team = games[i].getTeamTurn();
+            games[i].makeMove(moves[i]);
+            games[i].setTeamTurn(team);
+            games[i].makeMove(reverseMoves[i]);
+            games[i].setTeamTurn(team);
+        }
+    }
+
+    private static ChessPosition[] teamPositions(ChessGame game) {
+        List<ChessPosition> positions = new ArrayList<>();
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = game.getBoard().getPiece(ChessPosition.of(row, col));
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    positions.add(ChessPosition.of(row, col));
+                }
+            }
+        }
+        return positions.toArray(new ChessPosition[0]);
+    }
+
+    /**
+     * Finds a quiet move by a piece other than a pawn whose reverse is legal once it is made
+     *
+     * @param game the position to search
+     * @return A move that the other team's reply can undo
+     */
+    private static ChessMove reversibleMove(ChessGame game) throws InvalidMoveException {
+        ChessBoard board = game.getBoard();
+        for (ChessMove move : game.legalMoves()) {
+            if (board.getPiece(move.getStartPosition()).getPieceType() == ChessPiece.PieceType.PAWN
+                    || board.getPiece(move.getEndPosition()) != null) {
+                continue;
+            }
+            ChessGame copy = Fen.parse(Fen.format(game));
+            copy.makeMove(move);
+            copy.setTeamTurn(game.getTeamTurn());
+            if (copy.validMoves(move.getEndPosition()).contains(
+                    new ChessMove(move.getEndPosition(), move.getStartPosition(), null))) {
+                return move;
+            }
+        }
+        throw new IllegalStateException("No reversible move in " + Fen.format(game));
+    }
+}
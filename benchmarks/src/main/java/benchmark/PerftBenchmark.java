@@ -0,0 +1,64 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.Fen;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times perft on standard test positions. The nodes counter divided by the run time is the
+ * move generator's throughput in nodes per second, which JMH reports as nodes ops/s.
+ * <p>
+ * Run with {@code java -jar benchmarks/target/benchmarks.jar Perft}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerftBenchmark {
+    /**
+     * Each entry is a FEN string and the depth to search it to, separated by a '|'. Depths
+     * stop before castling or en passant could come up, since the engine implements neither.
+     */
+    @Param({
+        Fen.START_POSITION + "|4",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1|2",
+        "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10|3",
+        "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1|3"
+    })
+    public String position;
+
+    private ChessGame game;
+    private int depth;
+
+    /**
+     * Nodes searched, reported by JMH as a rate alongside the perft calls per second
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        int separator = position.lastIndexOf('|');
+        game = Fen.parse(position.substring(0, separator));
+        depth = Integer.parseInt(position.substring(separator + 1));
+    }
+
+    @Benchmark
+    public long perft(Nodes counter) {
+        long nodes = game.perft(depth);
+        counter.nodes += nodes;
+        return nodes;
+    }
+}
@@ -0,0 +1,64 @@
+package benchmark;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times ChessPiece.pieceMoves for one piece type at a time. One operation generates the
+ * moves of every piece of that type, of either team, in every position of the phase.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PieceMovesBenchmark {
+    @Param
+    public Positions phase;
+
+    @Param
+    public ChessPiece.PieceType type;
+
+    private ChessBoard[] boards;
+    private ChessPosition[] positions;
+    private ChessPiece[] pieces;
+
+    @Setup
+    public void setup() {
+        List<ChessBoard> boardList = new ArrayList<>();
+        List<ChessPosition> positionList = new ArrayList<>();
+        List<ChessPiece> pieceList = new ArrayList<>();
+
+        for (ChessGame game : phase.games()) {
+            ChessBoard board = game.getBoard();
+            for (int row = 1; row <= 8; row++) {
+                for (int col = 1; col <= 8; col++) {
+                    ChessPosition position = ChessPosition.of(row, col);
+                    ChessPiece piece = board.getPiece(position);
+                    if (piece != null && piece.getPieceType() == type) {
+                        boardList.add(board);
+                        positionList.add(position);
+                        pieceList.add(piece);
+                    }
+                }
+            }
+        }
+
+        boards = boardList.toArray(new ChessBoard[0]);
+        positions = positionList.toArray(new ChessPosition[0]);
+        pieces = pieceList.toArray(new ChessPiece[0]);
+    }
+
+    @Benchmark
+    public void pieceMoves(Blackhole blackhole) {
+        for (int i = 0; i < pieces.length; i++) {
+            blackhole.consume(pieces[i].pieceMoves(boards[i], positions[i]));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.Fen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The corpus of positions the engine benchmarks run over, grouped by phase of the game so
+ * a regression that only shows up with a crowded or an empty board is not averaged away.
+ */
+public enum Positions {
+    OPENING(
+        Fen.START_POSITION,
+        "rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w - - 0 2",
+        "r1bqkbnr/pppp1ppp/2n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R b - - 3 3",
+        "rnbqkb1r/ppp2ppp/4pn2/3p4/2PP4/2N5/PP2PPPP/R1BQKBNR w - - 2 4"
+    ),
+    MIDDLEGAME(
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1",
+        "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2NBPN2/PP3PPP/R1BQ1RK1 w - - 0 9",
+        "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w - - 1 8",
+        "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"
+    ),
+    ENDGAME(
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+        "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1",
+        "1K1k4/1P6/8/8/8/8/r7/2R5 w - - 0 1",
+        "8/8/8/4k3/8/8/8/4KQ2 w - - 0 1"
+    );
+
+    private final String[] fens;
+
+    Positions(String... fens) {
+        this.fens = fens;
+    }
+
+    /**
+     * @return A new game for every position in this phase
+     */
+    public List<ChessGame> games() {
+        List<ChessGame> games = new ArrayList<>(fens.length);
+        for (String fen : fens) {
+            games.add(Fen.parse(fen));
+        }
+        return games;
+    }
+}
@@ -6,6 +6,7 @@ import chess.*;
 import model.*;
 import server.ServerFacade;
 import ui.websocket.*;
+import websocket.messages.MoveAppliedMessage;
 import static ui.EscapeSequences.*;
 import static java.util.Objects.isNull;
 
@@ -19,6 +20,8 @@ public class Client {
     private WebSocketFacade ws;
     private State state = State.SIGNED_OUT;
     public GameData currentGame;
+    // Set while a RESYNC is waiting on its LOAD_GAME, so out of step moves do not ask again
+    private boolean resyncPending;
     private String currentColor;
     private Integer currentGameNumber;
     private static ArrayList<ChessPosition> positions = new ArrayList<>();
@@ -121,6 +124,38 @@ public class Client {
         throw new ClientException(400, "Not in game, cannot make a move");
     }
 
+    // Replaces the local game with a board from the server, which answers any pending resync
+    public void loadGame(GameData game) {
+        currentGame = game;
+        resyncPending = false;
+    }
+
+    // Makes a move from the server on the local game, returns false if the game was out of step and needs a resync
+    public boolean applyMove(MoveAppliedMessage message) {
+        if (currentGame == null || resyncPending) {
+            return false;
+        }
+        ChessGame game = currentGame.game();
+        if (message.getPly() != game.getPly() + 1) {
+            return false;
+        }
+        try {
+            game.makeMove(message.getMove());
+        } catch (InvalidMoveException ex) {
+            return false;
+        }
+        return game.positionKey() == message.getPositionKey();
+    }
+
+    // Asks the server for the whole board, once until its LOAD_GAME arrives
+    public void resyncGame() throws Exception {
+        if (resyncPending || currentGame == null) {
+            return;
+        }
+        resyncPending = true;
+        ws.resyncGame(authData, currentGame.gameID());
+    }
+
     public String resign() throws Exception {
         ws.resignGame(authData, currentGame.gameID());
         return "";
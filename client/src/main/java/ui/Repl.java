@@ -47,7 +47,7 @@ public class Repl implements NotificationHandler {
 
     public void notify(LoadGameMessage notification) {
         try {
-            client.currentGame = notification.getGame();
+            client.loadGame(notification.getGame());
             System.out.print("\n" + client.redrawBoard());
             printPrompt(client.getState());
         } catch (Exception ex) {
@@ -55,6 +55,19 @@ public class Repl implements NotificationHandler {
         }
     }
 
+    public void notify(MoveAppliedMessage notification) {
+        try {
+            if (client.applyMove(notification)) {
+                System.out.print("\n" + client.redrawBoard());
+                printPrompt(client.getState());
+            } else {
+                client.resyncGame();
+            }
+        } catch (Exception ex) {
+            System.out.println(SET_TEXT_COLOR_RED + "Error updating game.");
+        }
+    }
+
     private void printPrompt(String state) {
         System.out.print("\n" + SET_TEXT_COLOR_BLUE + "[" + state + "] >>> " + SET_TEXT_COLOR_BLUE);
     }
@@ -4,6 +4,7 @@ import chess.ChessMove;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import model.*;
+import websocket.commands.ConnectCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.messages.*;
 import websocket.commands.UserGameCommand;
@@ -46,6 +47,8 @@ public class WebSocketFacade extends Endpoint {
                             notificationHandler.notify((NotificationMessage) serverMessage);
                         } else if (serverMessage instanceof LoadGameMessage) {
                             notificationHandler.notify((LoadGameMessage) serverMessage);
+                        } else if (serverMessage instanceof MoveAppliedMessage) {
+                            notificationHandler.notify((MoveAppliedMessage) serverMessage);
                         } else {
                             System.err.println("Unknown ServerMessage type: " + serverMessage.getServerMessageType());
                         }
@@ -69,7 +72,8 @@ public class WebSocketFacade extends Endpoint {
             if (this.session == null || !this.session.isOpen()) {
                 throw new IllegalStateException("WebSocket session is not open");
             }
-            var action = new UserGameCommand(UserGameCommand.CommandType.CONNECT, authData.authToken(), gameId);
+            // Ask for moves as deltas, the client applies them to its own copy of the game
+            var action = new ConnectCommand(authData.authToken(), gameId, true);
             Gson gson = new Gson();
             String payload = gson.toJson(action);
             this.session.getBasicRemote().sendText(payload);
@@ -92,6 +96,20 @@ public class WebSocketFacade extends Endpoint {
         }
     }
 
+    public void resyncGame(AuthData authData, Integer gameId) throws WebSocketException {
+        try {
+            if (this.session == null || !this.session.isOpen()) {
+                throw new IllegalStateException("WebSocket session is not open");
+            }
+            var action = new UserGameCommand(UserGameCommand.CommandType.RESYNC, authData.authToken(), gameId);
+            Gson gson = new Gson();
+            String payload = gson.toJson(action);
+            this.session.getBasicRemote().sendText(payload);
+        } catch (IOException ex) {
+            throw new WebSocketException(500, "Failed to send resync game command");
+        }
+    }
+
     public void leaveGame(AuthData authData, Integer gameId) throws WebSocketException {
         try {
             if (this.session == null || !this.session.isOpen()) {
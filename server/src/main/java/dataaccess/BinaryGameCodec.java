@@ -0,0 +1,96 @@
+package dataaccess;
+
+import chess.*;
+
+/**
+ * Stores a game in 10 bytes plus half a byte per piece, 26 bytes for the starting position.
+ * <p>
+ * After the tag comes a flags byte (bit 0 set when black is to move, bit 1 when the game
+ * was resigned), then the occupied squares as a big-endian bitboard with a1 as bit 0. Each
+ * occupied square, from a1 up to h8, then gets a 4 bit piece code: team ordinal * 6 plus
+ * piece type ordinal, two codes to a byte with the first in the high half.
+ */
+public class BinaryGameCodec implements GameCodec {
+    private static final byte TAG = 'B';
+    private static final int BLACK_TO_MOVE = 1;
+    private static final int RESIGNED = 1 << 1;
+    private static final int HEADER_BYTES = 1 + 1 + Long.BYTES;
+
+    private static final ChessGame.TeamColor[] TEAMS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    @Override
+    public byte tag() {
+        return TAG;
+    }
+
+    @Override
+    public byte[] encode(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        long occupied = board.getOccupied();
+        int[] codes = new int[64];
+        for (ChessGame.TeamColor team : TEAMS) {
+            for (ChessPiece.PieceType type : TYPES) {
+                long pieces = board.getPieceBoard(team, type);
+                while (pieces != 0) {
+                    codes[Long.numberOfTrailingZeros(pieces)] = pieceCode(team, type);
+                    pieces &= pieces - 1;
+                }
+            }
+        }
+
+        int pieceCount = Long.bitCount(occupied);
+        byte[] data = new byte[HEADER_BYTES + (pieceCount + 1) / 2];
+        data[0] = TAG;
+        data[1] = (byte) ((game.getTeamTurn() == ChessGame.TeamColor.BLACK ? BLACK_TO_MOVE : 0)
+                | (game.isResigned() ? RESIGNED : 0));
+        for (int i = 0; i < Long.BYTES; i++) {
+            data[2 + i] = (byte) (occupied >>> (56 - 8 * i));
+        }
+
+        int n = 0;
+        for (long squares = occupied; squares != 0; squares &= squares - 1, n++) {
+            int code = codes[Long.numberOfTrailingZeros(squares)];
+            data[HEADER_BYTES + n / 2] |= (byte) (n % 2 == 0 ? code << 4 : code);
+        }
+        return data;
+    }
+
+    @Override
+    public ChessGame decode(byte[] data) throws DataAccessException {
+        if (data.length < HEADER_BYTES) {
+            throw new DataAccessException(500, "Corrupt binary game encoding: too short");
+        }
+
+        long occupied = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            occupied = (occupied << 8) | (data[2 + i] & 0xFF);
+        }
+        int pieceCount = Long.bitCount(occupied);
+        if (data.length != HEADER_BYTES + (pieceCount + 1) / 2) {
+            throw new DataAccessException(500, "Corrupt binary game encoding: wrong length for " + pieceCount + " pieces");
+        }
+
+        ChessBoard board = new ChessBoard();
+        int n = 0;
+        for (long squares = occupied; squares != 0; squares &= squares - 1, n++) {
+            int square = Long.numberOfTrailingZeros(squares);
+            int packed = data[HEADER_BYTES + n / 2] & 0xFF;
+            int code = n % 2 == 0 ? packed >>> 4 : packed & 0xF;
+            if (code >= TEAMS.length * TYPES.length) {
+                throw new DataAccessException(500, "Corrupt binary game encoding: bad piece code " + code);
+            }
+            board.addPiece(ChessPosition.of(square / 8 + 1, square % 8 + 1),
+                    ChessPiece.of(TEAMS[code / TYPES.length], TYPES[code % TYPES.length]));
+        }
+
+        int flags = data[1];
+        ChessGame game = new ChessGame(board, (flags & BLACK_TO_MOVE) != 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+        game.setResigned((flags & RESIGNED) != 0);
+        return game;
+    }
+
+    private static int pieceCode(ChessGame.TeamColor team, ChessPiece.PieceType type) {
+        return team.ordinal() * TYPES.length + type.ordinal();
+    }
+}
@@ -0,0 +1,474 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool of database connections. Borrowed connections are handed out wrapped in a
+ * proxy whose close() returns the connection to the pool, so callers keep using
+ * try-with-resources exactly as they would with a connection from DriverManager.
+ * <p>
+ * A connection that sat idle for longer than the validation bypass is checked with
+ * isValid() before it is handed out, and a background thread closes connections that have
+ * been idle past the idle timeout, down to the minimum size.
+ * <p>
+ * Each physical connection also keeps its prepared statements, keyed by SQL text, and
+ * hands the same statement back the next time that SQL is prepared on it. Closing a cached
+ * statement only clears its parameters. The least recently used statement is closed once
+ * the cache is full.
+ */
+public class ConnectionPool {
+    /**
+     * Opens a new physical connection for the pool
+     */
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * A snapshot of the pool's counters
+     *
+     * @param active connections currently borrowed
+     * @param idle connections waiting in the pool
+     * @param borrows total number of successful borrows
+     * @param created physical connections opened
+     * @param evicted physical connections closed for being idle, invalid or broken
+     * @param timeouts borrows that gave up waiting for a free connection
+     * @param totalWaitNanos time all borrows spent waiting for a free connection
+     * @param maxWaitNanos longest time a single borrow waited
+     * @param statementHits prepares answered from a connection's statement cache
+     * @param statementMisses prepares that had to go to the database
+     * @param statementEvictions cached statements closed to make room for others
+     */
+    public record Metrics(int active, int idle, long borrows, long created, long evicted, long timeouts,
+                          long totalWaitNanos, long maxWaitNanos,
+                          long statementHits, long statementMisses, long statementEvictions) {
+        public double averageWaitMillis() {
+            return borrows == 0 ? 0 : totalWaitNanos / 1_000_000.0 / borrows;
+        }
+
+        public double statementHitRate() {
+            long prepares = statementHits + statementMisses;
+            return prepares == 0 ? 0 : (double) statementHits / prepares;
+        }
+    }
+
+    private static final long VALIDATION_BYPASS_MILLIS = 500;
+
+    private final ConnectionFactory factory;
+    private final int minSize;
+    private final int maxSize;
+    private final long maxWaitMillis;
+    private final long idleTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder borrows = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder statementHits = new LongAdder();
+    private final LongAdder statementMisses = new LongAdder();
+    private final LongAdder statementEvictions = new LongAdder();
+    private final ScheduledExecutorService maintenance;
+
+    ConnectionPool(ConnectionFactory factory, int minSize, int maxSize, long maxWaitMillis,
+                   long idleTimeoutMillis, int validationTimeoutSeconds, int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Pool sizes must satisfy 0 <= min <= max and max >= 1");
+        }
+        this.factory = factory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "db-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        maintenance.scheduleWithFixedDelay(this::maintain, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Builds a pool from the db.pool.* settings, using defaults for any that are missing
+     */
+    static ConnectionPool fromProperties(Properties props, ConnectionFactory factory) {
+        return new ConnectionPool(factory,
+                Integer.parseInt(props.getProperty("db.pool.minSize", "2")),
+                Integer.parseInt(props.getProperty("db.pool.maxSize", "10")),
+                Long.parseLong(props.getProperty("db.pool.maxWaitMillis", "5000")),
+                Long.parseLong(props.getProperty("db.pool.idleTimeoutMillis", "600000")),
+                Integer.parseInt(props.getProperty("db.pool.validationTimeoutSeconds", "2")),
+                Integer.parseInt(props.getProperty("db.pool.statementCacheSize", "32")));
+    }
+
+    /**
+     * Borrows a connection, waiting up to the configured time for one to be free
+     *
+     * @return A connection that goes back to the pool when it is closed
+     * @throws DataAccessException if no connection became free in time or one could not be opened
+     */
+    public Connection borrow() throws DataAccessException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new DataAccessException(500, "Timed out waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException(500, "Interrupted waiting for a database connection");
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = new PooledConnection(factory.create());
+                created.increment();
+            }
+            active.incrementAndGet();
+            borrows.increment();
+            return pooled.lease();
+        } catch (SQLException e) {
+            permits.release();
+            throw new DataAccessException(500, e.getMessage());
+        }
+    }
+
+    public Metrics metrics() {
+        return new Metrics(active.get(), idle.size(), borrows.sum(), created.sum(), evicted.sum(), timeouts.sum(),
+                totalWaitNanos.sum(), maxWaitNanos.get(),
+                statementHits.sum(), statementMisses.sum(), statementEvictions.sum());
+    }
+
+    /**
+     * Closes every idle connection and stops the maintenance thread. Connections still
+     * borrowed are closed when they are returned.
+     */
+    public void shutdown() {
+        maintenance.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    // Takes the most recently returned idle connection that is still valid
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+        return null;
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastUsed < VALIDATION_BYPASS_MILLIS) {
+            return true;
+        }
+        try {
+            return pooled.connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        active.decrementAndGet();
+        try {
+            if (pooled.connection.isClosed() || maintenance.isShutdown()) {
+                discard(pooled);
+                return;
+            }
+            pooled.closeLeakedStatements();
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            pooled.lastUsed = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Closes connections idle past the timeout, oldest first, then tops the pool up to its minimum
+    private void maintain() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+        while (oldestFirst.hasNext() && active.get() + idle.size() > minSize) {
+            var pooled = oldestFirst.next();
+            if (pooled.lastUsed < cutoff && idle.remove(pooled)) {
+                discard(pooled);
+            }
+        }
+
+        while (active.get() + idle.size() < minSize) {
+            try {
+                var pooled = new PooledConnection(factory.create());
+                created.increment();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                System.err.println("Unable to open database connection for pool: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        evicted.increment();
+        try {
+            pooled.connection.close();
+        } catch (SQLException ignored) {
+            // The connection is being thrown away either way
+        }
+    }
+
+    private void recordWait(long nanos) {
+        totalWaitNanos.add(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * A physical connection owned by the pool
+     */
+    private class PooledConnection {
+        final Connection connection;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        // Only touched by the thread holding the lease, so it needs no locking
+        private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= statementCacheSize) {
+                    return false;
+                }
+                statementEvictions.increment();
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Returns the cached statement for the SQL, preparing and caching it on a miss. If
+         * the cached one is still open from an earlier prepare, a separate uncached
+         * statement is returned instead.
+         */
+        PreparedStatement prepare(String sql, Integer autoGeneratedKeys) throws SQLException {
+            if (statementCacheSize <= 0) {
+                return prepareDirect(sql, autoGeneratedKeys);
+            }
+
+            String key = autoGeneratedKeys == null ? sql : autoGeneratedKeys + ":" + sql;
+            var cached = statements.get(key);
+            if (cached != null && !cached.inUse) {
+                statementHits.increment();
+                return cached.checkOut();
+            }
+
+            statementMisses.increment();
+            var statement = prepareDirect(sql, autoGeneratedKeys);
+            if (cached != null) {
+                return statement;
+            }
+            cached = new CachedStatement(statement);
+            statements.put(key, cached);
+            return cached.checkOut();
+        }
+
+        private PreparedStatement prepareDirect(String sql, Integer autoGeneratedKeys) throws SQLException {
+            return autoGeneratedKeys == null ? connection.prepareStatement(sql)
+                    : connection.prepareStatement(sql, autoGeneratedKeys);
+        }
+
+        // Statements a borrower never closed can't be trusted, so they are dropped from the cache
+        void closeLeakedStatements() {
+            statements.values().removeIf(cached -> {
+                if (cached.inUse) {
+                    cached.evict();
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Lease(this));
+        }
+    }
+
+    /**
+     * The handle given to one borrower. Closing it returns the connection to the pool, and
+     * using it after that fails instead of touching a connection someone else now holds.
+     */
+    private class Lease implements InvocationHandler {
+        private PooledConnection pooled;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (pooled != null) {
+                        var returning = pooled;
+                        pooled = null;
+                        release(returning);
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return pooled == null || pooled.connection.isClosed();
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "PooledConnection" + (pooled == null ? "[closed]" : "[" + pooled.connection + "]");
+                }
+                default -> {
+                    if (pooled == null) {
+                        throw new SQLException("Connection has been returned to the pool");
+                    }
+                    if (method.getName().equals("prepareStatement") && args.length == 1) {
+                        return pooled.prepare((String) args[0], null);
+                    }
+                    if (method.getName().equals("prepareStatement") && args.length == 2 && args[1] instanceof Integer keys) {
+                        return pooled.prepare((String) args[0], keys);
+                    }
+                    try {
+                        return method.invoke(pooled.connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A prepared statement kept open in a connection's cache. Each prepare hands out a new
+     * proxy for it, and closing that proxy clears the parameters and batch and frees the
+     * statement for the next prepare of the same SQL instead of closing it.
+     */
+    private static class CachedStatement {
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        PreparedStatement checkOut() {
+            inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new StatementHandle(this));
+        }
+
+        void checkIn() throws SQLException {
+            inUse = false;
+            if (evicted) {
+                statement.close();
+            } else {
+                statement.clearParameters();
+                // A failed executeBatch leaves its rows queued, which must not run for the next caller
+                statement.clearBatch();
+            }
+        }
+
+        // Closes the statement now, or when it is checked in if someone is still using it
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                try {
+                    statement.close();
+                } catch (SQLException ignored) {
+                    // The statement is being thrown away either way
+                }
+            }
+        }
+    }
+
+    private static class StatementHandle implements InvocationHandler {
+        private CachedStatement cached;
+
+        StatementHandle(CachedStatement cached) {
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close" -> {
+                    if (cached != null) {
+                        var returning = cached;
+                        cached = null;
+                        returning.checkIn();
+                    }
+                    return null;
+                }
+                case "isClosed" -> {
+                    return cached == null;
+                }
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                default -> {
+                    if (cached == null) {
+                        throw new SQLException("Statement has been closed");
+                    }
+                    try {
+                        return method.invoke(cached.statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -12,6 +12,12 @@ public class DatabaseManager {
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final Properties PROPERTIES;
+    // Built on first use and dropped by shutdown, so a server started after another stopped gets a fresh pool
+    private static volatile ConnectionPool pool;
+    private static final GameCodec GAME_CODEC;
+    private static final int SNAPSHOT_INTERVAL;
+    private static final WriteBehindGameDAO.Settings WRITE_BEHIND;
 
     /*
      * Load the database information for the db.properties file.
@@ -30,7 +36,16 @@ public class DatabaseManager {
 
                 var host = props.getProperty("db.host");
                 var port = Integer.parseInt(props.getProperty("db.port"));
-                CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+                // Server side statements are parsed once per connection, which pays off with the pool's statement cache
+                var serverPrepStmts = Boolean.parseBoolean(props.getProperty("db.useServerPrepStmts", "true"));
+                // Batched inserts are sent as one multi-row statement instead of a round trip per row
+                CONNECTION_URL = String.format("jdbc:mysql://%s:%d?useServerPrepStmts=%b&rewriteBatchedStatements=true",
+                        host, port, serverPrepStmts);
+                PROPERTIES = props;
+                pool = ConnectionPool.fromProperties(props, DatabaseManager::openConnection);
+                GAME_CODEC = GameCodec.named(props.getProperty("db.gameCodec", "binary"));
+                SNAPSHOT_INTERVAL = GameWrite.parseSnapshotInterval(props.getProperty("db.snapshotInterval", "16"));
+                WRITE_BEHIND = WriteBehindGameDAO.Settings.fromProperties(props);
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
@@ -46,15 +61,17 @@ public class DatabaseManager {
                         case String p -> ps.setString(i + 1, p);
                         case Integer p -> ps.setInt(i + 1, p);
                         case ChessGame c -> ps.setString(i + 1, c.toString());
+                        case byte[] b -> ps.setBytes(i + 1, b);
                         case null -> ps.setNull(i + 1, NULL);
                         default -> throw new IllegalStateException("Unexpected value: " + param);
                     }
                 }
                 ps.executeUpdate();
 
-                var rs = ps.getGeneratedKeys();
-                if (rs.next()) {
-                    return rs.getInt(1);
+                try (var rs = ps.getGeneratedKeys()) {
+                    if (rs.next()) {
+                        return rs.getInt(1);
+                    }
                 }
 
                 return 0;
@@ -98,7 +115,69 @@ public class DatabaseManager {
     };
 
     /**
-     * Creates the database tables if they do not already exist.
+     * A numbered change to the schema, applied once to any database whose schema version is
+     * below it. Migrations are applied in order and never edited once released, so a new
+     * schema change is always added as a new migration at the end of MIGRATIONS.
+     */
+    private record Migration(int version, String description, MigrationStep step) {
+        static Migration sql(int version, String description, String... statements) {
+            return new Migration(version, description, conn -> runStatements(conn, statements));
+        }
+    }
+
+    @FunctionalInterface
+    private interface MigrationStep {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    static private final Migration[] MIGRATIONS = {
+            Migration.sql(1, "Index auth, user and game lookups",
+                    // Older servers never enforced these at the database, so clear duplicates before the unique indexes
+                    "DELETE a FROM auths a JOIN auths keep ON keep.token = a.token AND keep.authid < a.authid",
+                    """
+                    UPDATE users u JOIN users keep ON keep.username = u.username AND keep.userid < u.userid
+                    SET u.username = CONCAT(LEFT(u.username, 240), '#', u.userid)
+                    """,
+                    """
+                    UPDATE games g JOIN games keep ON keep.gamename = g.gamename AND keep.gameid < g.gameid
+                    SET g.gamename = CONCAT(LEFT(g.gamename, 240), ' (', g.gameid, ')')
+                    """,
+                    "CREATE UNIQUE INDEX auths_token ON auths (`token`)",
+                    "CREATE INDEX auths_username ON auths (`username`)",
+                    "CREATE UNIQUE INDEX users_username ON users (`username`)",
+                    "CREATE UNIQUE INDEX games_gamename ON games (`gamename`)"),
+            new Migration(2, "Store games encoded by a GameCodec", conn -> {
+                runStatements(conn, "ALTER TABLE games ADD COLUMN `state` VARBINARY(255) DEFAULT NULL");
+                MySQLGameDAO.upgradeLegacyGames(conn);
+            }),
+            Migration.sql(3, "Log moves and keep games.state as a periodic snapshot",
+                    """
+                    CREATE TABLE IF NOT EXISTS moves (
+                        `gameid` int NOT NULL,
+                        `ply` int NOT NULL,
+                        `move` smallint NOT NULL,
+                        PRIMARY KEY (`gameid`, `ply`)
+                    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
+                    """,
+                    "ALTER TABLE games ADD COLUMN `snapshotply` int NOT NULL DEFAULT 0")
+    };
+
+    static private final String CREATE_SCHEMA_VERSION = """
+            CREATE TABLE IF NOT EXISTS schema_version (
+                `version` int NOT NULL,
+                `description` varchar(256) NOT NULL,
+                `applied` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                PRIMARY KEY (`version`)
+            ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci
+            """;
+
+    // MySQL errors for adding a column or index whose name is already taken
+    static private final int DUPLICATE_COLUMN_NAME = 1060;
+    static private final int DUPLICATE_KEY_NAME = 1061;
+
+    /**
+     * Creates the database tables if they do not already exist, then applies any migrations
+     * newer than the database's schema version.
      */
     static private void configureDatabase() throws Exception {
         try (var conn = DatabaseManager.getConnection()) {
@@ -107,11 +186,71 @@ public class DatabaseManager {
                     preparedStatement.executeUpdate();
                 }
             }
+            try (var preparedStatement = conn.prepareStatement(CREATE_SCHEMA_VERSION)) {
+                preparedStatement.executeUpdate();
+            }
+            migrate(conn);
         } catch (SQLException ex) {
             throw new DataAccessException(500, String.format("Unable to configure database: %s", ex.getMessage()));
         }
     }
 
+    /**
+     * Applies each migration above the current schema version and records it. Migration
+     * steps are written so a migration interrupted before it was recorded can safely run
+     * again.
+     */
+    static private void migrate(Connection conn) throws SQLException {
+        int current = getSchemaVersion(conn);
+        for (var migration : MIGRATIONS) {
+            if (migration.version() <= current) {
+                continue;
+            }
+            migration.step().apply(conn);
+            var statement = "INSERT IGNORE INTO schema_version (version, description) VALUES (?, ?)";
+            try (var preparedStatement = conn.prepareStatement(statement)) {
+                preparedStatement.setInt(1, migration.version());
+                preparedStatement.setString(2, migration.description());
+                preparedStatement.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Runs schema statements, skipping any that fail because the column or index they add
+     * already exists
+     */
+    static private void runStatements(Connection conn, String... statements) throws SQLException {
+        for (var statement : statements) {
+            try (var preparedStatement = conn.prepareStatement(statement)) {
+                preparedStatement.executeUpdate();
+            } catch (SQLException ex) {
+                if (ex.getErrorCode() != DUPLICATE_COLUMN_NAME && ex.getErrorCode() != DUPLICATE_KEY_NAME) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The highest migration version applied to the database, or 0 if none have been
+     */
+    static int getSchemaVersion(Connection conn) throws SQLException {
+        var statement = "SELECT COALESCE(MAX(version), 0) FROM schema_version";
+        try (var preparedStatement = conn.prepareStatement(statement)) {
+            try (var rs = preparedStatement.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * @return The version of the newest migration this server knows about
+     */
+    static int getLatestSchemaVersion() {
+        return MIGRATIONS[MIGRATIONS.length - 1].version();
+    }
+
     /**
      * Creates the database if it does not already exist.
      */
@@ -130,25 +269,85 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Borrows a connection to the database from the connection pool, with the catalog
+     * set based upon the properties specified in db.properties. Connections to the
+     * database should be short-lived, and you must close the connection when you are
+     * done with it so it goes back to the pool. The easiest way to do that is with a
+     * try-with-resource block.
      * <br/>
      * <code>
-     * try (var conn = DbInfo.getConnection(databaseName)) {
+     * try (var conn = DatabaseManager.getConnection()) {
      * // execute SQL statements.
      * }
      * </code>
      */
     static Connection getConnection() throws DataAccessException {
-        try {
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            conn.setCatalog(DATABASE_NAME);
-            return conn;
-        } catch (SQLException e) {
-            throw new DataAccessException(500, e.getMessage());
+        return pool().borrow();
+    }
+
+    private static ConnectionPool pool() {
+        var current = pool;
+        if (current == null) {
+            synchronized (DatabaseManager.class) {
+                current = pool;
+                if (current == null) {
+                    current = ConnectionPool.fromProperties(PROPERTIES, DatabaseManager::openConnection);
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return The codec new and updated games are stored with, set by db.gameCodec
+     */
+    static GameCodec getGameCodec() {
+        return GAME_CODEC;
+    }
 
+    /**
+     * @return How many moves are logged between snapshots of a game's state, set by db.snapshotInterval
+     */
+    static int getSnapshotInterval() {
+        return SNAPSHOT_INTERVAL;
+    }
+
+    /**
+     * @return Queue sizes and flush interval for game writes, set by db.writeBehind.*
+     */
+    static WriteBehindGameDAO.Settings getWriteBehindSettings() {
+        return WRITE_BEHIND;
+    }
+
+    /**
+     * @return The connection pool's current counters
+     */
+    public static ConnectionPool.Metrics getPoolMetrics() {
+        return pool().metrics();
+    }
+
+    /**
+     * Closes the pool's idle connections and stops its maintenance thread, called as the
+     * server stops. The next connection borrowed builds a new pool.
+     */
+    public static void shutdown() {
+        ConnectionPool stopped;
+        synchronized (DatabaseManager.class) {
+            stopped = pool;
+            pool = null;
+        }
+        if (stopped != null) {
+            stopped.shutdown();
         }
     }
+
+    /**
+     * Opens a new physical connection for the pool
+     */
+    private static Connection openConnection() throws SQLException {
+        var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+        conn.setCatalog(DATABASE_NAME);
+        return conn;
+    }
 }
@@ -0,0 +1,43 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.Fen;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stores a game as its FEN string, which stays readable when the column is looked at by
+ * hand. A resigned game has " resigned" added after the FEN fields.
+ */
+public class FenGameCodec implements GameCodec {
+    private static final byte TAG = 'F';
+    private static final String RESIGNED = " resigned";
+
+    @Override
+    public byte tag() {
+        return TAG;
+    }
+
+    @Override
+    public byte[] encode(ChessGame game) {
+        String text = (char) TAG + Fen.format(game) + (game.isResigned() ? RESIGNED : "");
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public ChessGame decode(byte[] data) throws DataAccessException {
+        String text = new String(data, 1, data.length - 1, StandardCharsets.US_ASCII);
+        boolean resigned = text.endsWith(RESIGNED);
+        if (resigned) {
+            text = text.substring(0, text.length() - RESIGNED.length());
+        }
+
+        try {
+            ChessGame game = Fen.parse(text);
+            game.setResigned(resigned);
+            return game;
+        } catch (IllegalArgumentException e) {
+            throw new DataAccessException(500, "Corrupt FEN game encoding: " + e.getMessage());
+        }
+    }
+}
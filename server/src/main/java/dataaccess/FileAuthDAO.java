@@ -0,0 +1,131 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores auth tokens as fixed-size records in auths.dat. Logging out marks the token's
+ * record as removed rather than rewriting the file; removed records are dropped when the
+ * tokens are cleared. The token and username lookups are rebuilt when the file is opened.
+ */
+public class FileAuthDAO implements AuthDataAccess, AutoCloseable {
+    // Record layout: a state byte, then each field as a length and its bytes
+    private static final int STATE = 0;
+    private static final int TOKEN = 1;
+    private static final int USERNAME = TOKEN + 2 + 32;
+    private static final int RECORD_SIZE = 1088;
+
+    private static final byte LIVE = 1;
+    private static final byte REMOVED = 2;
+
+    private final RecordFile file;
+    private final Map<String, Integer> byToken = new HashMap<>();
+    // A user's oldest live token, matching which row a username lookup finds in MySQL
+    private final Map<String, Integer> byUsername = new HashMap<>();
+    private int count;
+
+    public FileAuthDAO(Path directory) throws IOException {
+        this.file = new RecordFile(directory.resolve("auths.dat"), RECORD_SIZE);
+        for (; count < file.capacity(); count++) {
+            var record = file.record(count);
+            if (record.get(STATE) == 0) {
+                break;
+            }
+            if (record.get(STATE) == LIVE) {
+                byToken.put(RecordFile.getString(record, TOKEN), count);
+                byUsername.putIfAbsent(RecordFile.getString(record, USERNAME), count);
+            }
+        }
+    }
+
+    // Get Auth Info by Username
+    public synchronized AuthData getAuthInfoByUsername(String username) throws Exception {
+        var slot = username == null ? null : byUsername.get(username);
+        return slot == null ? null : readAuth(file.record(slot));
+    }
+
+    private AuthData readAuth(ByteBuffer record) {
+        return new AuthData(RecordFile.getString(record, USERNAME), RecordFile.getString(record, TOKEN));
+    }
+
+    // Add user auth information
+    public synchronized void addAuthToken(String username, String authToken) throws Exception {
+        if (username == null || authToken == null) {
+            throw new DataAccessException(500, "Auth fields cannot be null");
+        }
+        if (byToken.containsKey(authToken)) {
+            throw new DataAccessException(500, "Duplicate auth token");
+        }
+        var record = file.record(count);
+        RecordFile.putString(record, TOKEN, 32, authToken);
+        RecordFile.putString(record, USERNAME, RecordFile.USERNAME_BYTES, username);
+        record.put(STATE, LIVE);
+        byToken.put(authToken, count);
+        byUsername.putIfAbsent(username, count);
+        count++;
+    }
+
+    // Get auth info from token
+    public synchronized AuthData getAuthInfoByToken(String token) throws Exception {
+        var slot = token == null ? null : byToken.get(token);
+        return slot == null ? null : readAuth(file.record(slot));
+    }
+
+    // Remove user auth information
+    public synchronized void removeAuthorization(String token) throws Exception {
+        var slot = token == null ? null : byToken.remove(token);
+        if (slot == null) {
+            return;
+        }
+        var record = file.record(slot);
+        record.put(STATE, REMOVED);
+        var username = RecordFile.getString(record, USERNAME);
+        if (byUsername.remove(username, slot)) {
+            // Fall back to the user's next oldest live token, which can only be in a later record
+            for (int other = slot + 1; other < count; other++) {
+                var next = file.record(other);
+                if (next.get(STATE) == LIVE && RecordFile.getString(next, USERNAME).equals(username)) {
+                    byUsername.put(username, other);
+                    break;
+                }
+            }
+        }
+    }
+
+    // Clear all auth information
+    public synchronized void clearAuths() {
+        try {
+            file.clear();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+        byToken.clear();
+        byUsername.clear();
+        count = 0;
+    }
+
+    // Get all auth information
+    public synchronized Collection<AuthData> getAllAuths() throws Exception {
+        var result = new ArrayList<AuthData>();
+        for (int slot : byToken.values()) {
+            result.add(readAuth(file.record(slot)));
+        }
+        return result;
+    }
+
+    public synchronized void force() {
+        file.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+}
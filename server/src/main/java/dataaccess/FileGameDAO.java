@@ -0,0 +1,246 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.PackedMove;
+import model.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+/**
+ * Stores games in two memory-mapped files. games.dat holds one fixed-size record per game,
+ * at index gameId - 1, with the players, the name and a snapshot of the game encoded by
+ * the binary codec. moves.journal is append-only and gets one checksummed entry per move.
+ * <p>
+ * As with the MySQL moves table, a move only appends to the journal, and the snapshot in
+ * the game's record is rewritten every snapshot interval moves. Loading a game replays the
+ * journal entries after its snapshot. Those entries are also kept in memory, so a load does
+ * not have to scan the journal.
+ * <p>
+ * When the files are opened the journal is read up to its first entry that fails its
+ * checksum, which is where a crash cut off the last append, and everything from there on
+ * is zeroed. A snapshot that fails its checksum is ignored and its game is rebuilt by
+ * replaying the game's whole journal from the starting position.
+ */
+public class FileGameDAO implements GameDataAccess, AutoCloseable {
+    // Game record layout: a written flag, the name and players as lengths and bytes, then the snapshot
+    private static final int WRITTEN = 0;
+    private static final int NAME = 1;
+    private static final int NAME_BYTES = 256;
+    private static final int WHITE = NAME + 2 + NAME_BYTES;
+    private static final int BLACK = WHITE + 2 + RecordFile.USERNAME_BYTES;
+    private static final int SNAPSHOT_PLY = BLACK + 2 + RecordFile.USERNAME_BYTES;
+    private static final int STATE_LENGTH = SNAPSHOT_PLY + 4;
+    private static final int STATE = STATE_LENGTH + 1;
+    private static final int STATE_BYTES = 48;
+    private static final int SNAPSHOT_CRC = STATE + STATE_BYTES;
+    private static final int GAME_RECORD_SIZE = 2560;
+
+    // Journal entry layout: game id, ply, packed move, then a checksum of those three
+    private static final int ENTRY_GAME_ID = 0;
+    private static final int ENTRY_PLY = 4;
+    private static final int ENTRY_MOVE = 8;
+    private static final int ENTRY_CRC = 12;
+    private static final int ENTRY_SIZE = 16;
+
+    private final RecordFile games;
+    private final RecordFile journal;
+    private final int snapshotInterval;
+    private final Map<String, Integer> idsByName = new HashMap<>();
+    // Journal entries after each game's snapshot, in the order they were made
+    private final Map<Integer, List<GameWrite.LoggedMove>> unsnapshotted = new HashMap<>();
+    private int gameCount;
+    private int entryCount;
+
+    public FileGameDAO(Path directory, int snapshotInterval) throws IOException {
+        this.snapshotInterval = GameWrite.checkSnapshotInterval(snapshotInterval);
+        this.games = new RecordFile(directory.resolve("games.dat"), GAME_RECORD_SIZE);
+        this.journal = new RecordFile(directory.resolve("moves.journal"), ENTRY_SIZE);
+
+        Map<Integer, Integer> snapshotPlies = new HashMap<>();
+        while (gameCount < games.capacity() && games.record(gameCount).get(WRITTEN) != 0) {
+            var record = games.record(gameCount);
+            int gameId = ++gameCount;
+            idsByName.put(RecordFile.getString(record, NAME), gameId);
+            snapshotPlies.put(gameId, snapshotValid(record) ? record.getInt(SNAPSHOT_PLY) : 0);
+        }
+
+        while (entryCount < journal.capacity() && entryValid(journal.record(entryCount))) {
+            var entry = journal.record(entryCount++);
+            int gameId = entry.getInt(ENTRY_GAME_ID);
+            int ply = entry.getInt(ENTRY_PLY);
+            if (ply > snapshotPlies.getOrDefault(gameId, Integer.MAX_VALUE)) {
+                unsnapshotted.computeIfAbsent(gameId, id -> new ArrayList<>())
+                        .add(new GameWrite.LoggedMove(ply, entry.getInt(ENTRY_MOVE)));
+            }
+        }
+        journal.zeroFrom(entryCount);
+    }
+
+    // Creates a new game
+    public synchronized void createNewGame(String gameName) throws Exception {
+        if (gameName == null) {
+            throw new DataAccessException(500, "Game name cannot be null");
+        }
+        if (idsByName.containsKey(gameName)) {
+            throw new DataAccessException(500, String.format("Duplicate entry '%s' for games", gameName));
+        }
+        var record = games.record(gameCount);
+        RecordFile.putString(record, NAME, NAME_BYTES, gameName);
+        RecordFile.putString(record, WHITE, RecordFile.USERNAME_BYTES, "");
+        RecordFile.putString(record, BLACK, RecordFile.USERNAME_BYTES, "");
+        writeSnapshot(record, new ChessGame());
+        record.put(WRITTEN, (byte) 1);
+        idsByName.put(gameName, ++gameCount);
+    }
+
+    // Get game by game name
+    public synchronized GameData getGameByName(String gameName) throws Exception {
+        var gameId = gameName == null ? null : idsByName.get(gameName);
+        return gameId == null ? null : readGame(gameId);
+    }
+
+    // Get game by game id
+    public synchronized GameData getGameById(Integer gameId) throws Exception {
+        if (gameId == null || gameId < 1 || gameId > gameCount) {
+            return null;
+        }
+        return readGame(gameId);
+    }
+
+    // Decodes the game's snapshot and replays the journal entries after it
+    private GameData readGame(int gameId) throws Exception {
+        var record = games.record(gameId - 1);
+        ChessGame game;
+        if (snapshotValid(record)) {
+            byte[] state = new byte[record.get(STATE_LENGTH)];
+            record.get(STATE, state);
+            game = GameCodec.BINARY.decode(state);
+            game.setPly(record.getInt(SNAPSHOT_PLY));
+        } else {
+            game = new ChessGame();
+        }
+
+        for (var move : unsnapshotted.getOrDefault(gameId, List.of())) {
+            if (move.ply() <= game.getPly()) {
+                continue;
+            }
+            try {
+                game.makeMove(PackedMove.toChessMove(move.move()));
+            } catch (InvalidMoveException e) {
+                throw new DataAccessException(500, "Journaled move " + move.ply() + " of game " + gameId + " is not legal");
+            }
+        }
+        return new GameData(gameId, RecordFile.getString(record, WHITE), RecordFile.getString(record, BLACK),
+                RecordFile.getString(record, NAME), game);
+    }
+
+    // Overwrite the game's snapshot with its whole current state
+    public synchronized void setGameById(Integer gameId, GameData gameData) throws Exception {
+        if (gameId != null && gameId >= 1 && gameId <= gameCount) {
+            writeSnapshot(games.record(gameId - 1), gameData.getGame());
+            unsnapshotted.remove(gameId);
+        }
+    }
+
+    // Append a move just made in the game to the journal, and snapshot the game every snapshot interval moves
+    public synchronized void addMove(Integer gameId, ChessMove move, ChessGame game) throws Exception {
+        if (gameId == null || gameId < 1 || gameId > gameCount) {
+            return;
+        }
+        int ply = game.getPly();
+        int packed = PackedMove.of(move);
+        var entry = journal.record(entryCount++);
+        entry.putInt(ENTRY_GAME_ID, gameId);
+        entry.putInt(ENTRY_PLY, ply);
+        entry.putInt(ENTRY_MOVE, packed);
+        entry.putInt(ENTRY_CRC, checksum(entry, 0, ENTRY_CRC));
+
+        if (ply % snapshotInterval == 0) {
+            writeSnapshot(games.record(gameId - 1), game);
+            unsnapshotted.remove(gameId);
+        } else {
+            unsnapshotted.computeIfAbsent(gameId, id -> new ArrayList<>()).add(new GameWrite.LoggedMove(ply, packed));
+        }
+    }
+
+    private static void writeSnapshot(ByteBuffer record, ChessGame game) {
+        byte[] state = GameCodec.BINARY.encode(game);
+        record.putInt(SNAPSHOT_PLY, game.getPly());
+        record.put(STATE_LENGTH, (byte) state.length);
+        record.put(STATE, state);
+        record.putInt(SNAPSHOT_CRC, checksum(record, SNAPSHOT_PLY, SNAPSHOT_CRC));
+    }
+
+    private static boolean snapshotValid(ByteBuffer record) {
+        int length = record.get(STATE_LENGTH);
+        return length > 0 && length <= STATE_BYTES && record.getInt(SNAPSHOT_CRC) == checksum(record, SNAPSHOT_PLY, SNAPSHOT_CRC);
+    }
+
+    private static boolean entryValid(ByteBuffer entry) {
+        return entry.getInt(ENTRY_GAME_ID) > 0 && entry.getInt(ENTRY_CRC) == checksum(entry, 0, ENTRY_CRC);
+    }
+
+    private static int checksum(ByteBuffer buffer, int from, int to) {
+        var crc = new CRC32C();
+        crc.update(buffer.slice(from, to - from));
+        return (int) crc.getValue();
+    }
+
+    // Clear all games and their journal, starting ids from 1 again
+    public synchronized void clearGames() throws Exception {
+        games.clear();
+        journal.clear();
+        idsByName.clear();
+        unsnapshotted.clear();
+        gameCount = 0;
+        entryCount = 0;
+    }
+
+    // Get a page of games after the given id for the lobby, reading names and players but not snapshots
+    public synchronized List<GameData> listGames(int afterId, int limit, boolean openOnly) throws Exception {
+        List<GameData> page = new ArrayList<>();
+        for (int gameId = Math.max(afterId, 0) + 1; gameId <= gameCount && page.size() < limit; gameId++) {
+            var record = games.record(gameId - 1);
+            var white = RecordFile.getString(record, WHITE);
+            var black = RecordFile.getString(record, BLACK);
+            if (!openOnly || white.isEmpty() || black.isEmpty()) {
+                page.add(GameData.summary(gameId, white, black, RecordFile.getString(record, NAME)));
+            }
+        }
+        return page;
+    }
+
+    // Add user to specified game by gameId
+    public synchronized void addUserToGame(String username, JoinGameData gameData) throws Exception {
+        int offset;
+        if (Objects.equals(gameData.playerColor(), "WHITE")) {
+            offset = WHITE;
+        } else if (Objects.equals(gameData.playerColor(), "BLACK")) {
+            offset = BLACK;
+        } else {
+            throw new DataAccessException(500, "Color passed in is not white or black.");
+        }
+        var gameId = gameData.gameID();
+        if (gameId != null && gameId >= 1 && gameId <= gameCount) {
+            RecordFile.putString(games.record(gameId - 1), offset, RecordFile.USERNAME_BYTES, username);
+        }
+    }
+
+    // Writes the mapped pages of both files through to the disk
+    public synchronized void flush() {
+        journal.force();
+        games.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        journal.close();
+        games.close();
+    }
+}
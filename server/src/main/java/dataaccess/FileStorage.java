@@ -0,0 +1,43 @@
+package dataaccess;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The file DAOs for one data directory. Each directory is opened once per process, so
+ * every service using the file backend shares the same mappings and lookups, and the
+ * files are forced to disk when the process exits.
+ */
+final class FileStorage {
+    private static final Map<Path, FileStorage> OPEN = new ConcurrentHashMap<>();
+
+    final FileUserDAO users;
+    final FileAuthDAO auths;
+    final FileGameDAO games;
+
+    private FileStorage(Path directory, int snapshotInterval) throws IOException {
+        Files.createDirectories(directory);
+        this.users = new FileUserDAO(directory);
+        this.auths = new FileAuthDAO(directory);
+        this.games = new FileGameDAO(directory, snapshotInterval);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            users.force();
+            auths.force();
+            games.flush();
+        }, "file-storage-flush"));
+    }
+
+    static FileStorage open(Path directory, int snapshotInterval) {
+        return OPEN.computeIfAbsent(directory.toAbsolutePath().normalize(), dir -> {
+            try {
+                return new FileStorage(dir, snapshotInterval);
+            } catch (IOException e) {
+                throw new UncheckedIOException("unable to open file storage in " + dir, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package dataaccess;
+
+import model.UserData;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores users as fixed-size records in users.dat, appended in the order they register.
+ * The username to record index is rebuilt by scanning the file when it is opened.
+ */
+public class FileUserDAO implements UserDataAccess, AutoCloseable {
+    // Record layout: a written flag, then each field as a length and its bytes
+    private static final int WRITTEN = 0;
+    private static final int USERNAME = 1;
+    private static final int PASSWORD = USERNAME + 2 + RecordFile.USERNAME_BYTES;
+    private static final int EMAIL = PASSWORD + 2 + 64;
+    private static final int RECORD_SIZE = 2048;
+
+    private final RecordFile file;
+    private final Map<String, Integer> index = new HashMap<>();
+    private int count;
+
+    public FileUserDAO(Path directory) throws IOException {
+        this.file = new RecordFile(directory.resolve("users.dat"), RECORD_SIZE);
+        while (count < file.capacity() && file.record(count).get(WRITTEN) != 0) {
+            index.put(RecordFile.getString(file.record(count), USERNAME), count);
+            count++;
+        }
+    }
+
+    // Gets user on username
+    public synchronized UserData getUser(String username) throws Exception {
+        var slot = username == null ? null : index.get(username);
+        return slot == null ? null : readUser(file.record(slot));
+    }
+
+    private UserData readUser(ByteBuffer record) {
+        return new UserData(RecordFile.getString(record, USERNAME), RecordFile.getString(record, PASSWORD),
+                RecordFile.getString(record, EMAIL));
+    }
+
+    // List all users
+    public synchronized Collection<UserData> listUsers() throws Exception {
+        var result = new ArrayList<UserData>();
+        for (int i = 0; i < count; i++) {
+            result.add(readUser(file.record(i)));
+        }
+        return result;
+    }
+
+    // Add user, storing the given (hashed) password in place of the one in user
+    public synchronized void addUser(UserData user, String password) throws Exception {
+        if (user.username() == null || password == null || user.email() == null) {
+            throw new DataAccessException(500, "User fields cannot be null");
+        }
+        if (index.containsKey(user.username())) {
+            throw new DataAccessException(500, String.format("Duplicate entry '%s' for users", user.username()));
+        }
+        var record = file.record(count);
+        RecordFile.putString(record, USERNAME, RecordFile.USERNAME_BYTES, user.username());
+        RecordFile.putString(record, PASSWORD, 64, password);
+        RecordFile.putString(record, EMAIL, RECORD_SIZE - EMAIL - 2, user.email());
+        record.put(WRITTEN, (byte) 1);
+        index.put(user.username(), count++);
+    }
+
+    // Clear users
+    public synchronized void clearUsers() throws Exception {
+        file.clear();
+        index.clear();
+        count = 0;
+    }
+
+    public synchronized void force() {
+        file.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+}
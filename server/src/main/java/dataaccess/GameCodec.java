@@ -0,0 +1,64 @@
+package dataaccess;
+
+import chess.ChessGame;
+
+/**
+ * Turns a game into the bytes stored in the games.state column and back. The first byte of
+ * every encoding is the tag of the codec that wrote it, so rows written with different
+ * codecs can live side by side and each is read back with the codec that wrote it.
+ */
+public interface GameCodec {
+    GameCodec BINARY = new BinaryGameCodec();
+    GameCodec FEN = new FenGameCodec();
+
+    /**
+     * @return The byte identifying this codec at the start of its encodings
+     */
+    byte tag();
+
+    /**
+     * @param game the game to encode
+     * @return The tag followed by the encoded game
+     */
+    byte[] encode(ChessGame game);
+
+    /**
+     * @param data bytes written by this codec's encode, tag included
+     * @return The decoded game
+     * @throws DataAccessException if the bytes are not a valid encoding
+     */
+    ChessGame decode(byte[] data) throws DataAccessException;
+
+    /**
+     * Looks up a codec by the name used in db.properties
+     *
+     * @param name "binary" or "fen"
+     * @return The codec with that name
+     */
+    static GameCodec named(String name) {
+        return switch (name.trim().toLowerCase()) {
+            case "binary" -> BINARY;
+            case "fen" -> FEN;
+            default -> throw new IllegalArgumentException("Unknown game codec: " + name);
+        };
+    }
+
+    /**
+     * Decodes bytes written by any codec, picking the codec from the tag
+     *
+     * @param data the stored bytes
+     * @return The decoded game
+     * @throws DataAccessException if the tag is unknown or the bytes are not a valid encoding
+     */
+    static ChessGame decodeAny(byte[] data) throws DataAccessException {
+        if (data == null || data.length == 0) {
+            throw new DataAccessException(500, "Stored game is empty");
+        }
+        if (data[0] == BINARY.tag()) {
+            return BINARY.decode(data);
+        } else if (data[0] == FEN.tag()) {
+            return FEN.decode(data);
+        }
+        throw new DataAccessException(500, "Unknown game encoding tag: " + data[0]);
+    }
+}
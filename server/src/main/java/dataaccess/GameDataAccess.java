@@ -1,19 +1,22 @@
 package dataaccess;
 
+import chess.ChessGame;
+import chess.ChessMove;
 import model.GameData;
 import model.JoinGameData;
 
 import java.util.List;
-import java.util.Map;
 
 public interface GameDataAccess {
     void createNewGame(String gameName) throws Exception;
     GameData getGameByName(String gameName) throws Exception;
     GameData getGameById(Integer gameId) throws Exception;
     void setGameById(Integer gameId, GameData gameData) throws Exception;
+    void addMove(Integer gameId, ChessMove move, ChessGame game) throws Exception;
     void clearGames() throws Exception;
-    Map<String, List<Map<String, Object>>> getAllGames() throws Exception;
+    List<GameData> listGames(int afterId, int limit, boolean openOnly) throws Exception;
     void addUserToGame(String username, JoinGameData gameData) throws Exception;
+    void flush() throws Exception;
 
 }
 
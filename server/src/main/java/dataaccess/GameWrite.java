@@ -0,0 +1,128 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.PackedMove;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Changes to one game that still have to reach the database: moves to append to the moves
+ * table and, optionally, a new snapshot for games.state. The snapshot is encoded when the
+ * write is made, so later moves on the live game do not leak into it. Two writes to the
+ * same game merge into one that keeps every move and only the newer snapshot.
+ * <p>
+ * Each write also keeps the game's encoded state after its last move. If the moves cannot
+ * be written, that state replaces them as the snapshot, so the database never ends up with
+ * a gap in a game's logged plies.
+ */
+final class GameWrite {
+    record LoggedMove(int ply, int move) {
+    }
+
+    private final Integer gameId;
+    private final List<LoggedMove> moves = new ArrayList<>();
+    private byte[] snapshot;
+    private int snapshotPly;
+    private byte[] latest;
+    private int latestPly;
+    private int attempts;
+
+    private GameWrite(Integer gameId) {
+        this.gameId = gameId;
+    }
+
+    /**
+     * Parses db.snapshotInterval, rejecting it at startup when it is below 1
+     */
+    static int parseSnapshotInterval(String value) {
+        return checkSnapshotInterval(Integer.parseInt(value));
+    }
+
+    static int checkSnapshotInterval(int snapshotInterval) {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("db.snapshotInterval must be at least 1, was " + snapshotInterval);
+        }
+        return snapshotInterval;
+    }
+
+    /**
+     * A move just made in the game, with a snapshot if its ply lands on the snapshot interval
+     */
+    static GameWrite move(Integer gameId, ChessMove move, ChessGame game, GameCodec codec, int snapshotInterval) {
+        var write = new GameWrite(gameId);
+        int ply = game.getPly();
+        write.moves.add(new LoggedMove(ply, PackedMove.of(move)));
+        write.latest = codec.encode(game);
+        write.latestPly = ply;
+        if (ply % snapshotInterval == 0) {
+            write.snapshot = write.latest;
+            write.snapshotPly = ply;
+        }
+        return write;
+    }
+
+    /**
+     * A snapshot of the game's whole current state
+     */
+    static GameWrite snapshot(Integer gameId, ChessGame game, GameCodec codec) {
+        var write = new GameWrite(gameId);
+        write.snapshot = codec.encode(game);
+        write.snapshotPly = game.getPly();
+        write.latest = write.snapshot;
+        write.latestPly = write.snapshotPly;
+        return write;
+    }
+
+    /**
+     * Folds a later write to the same game into this one
+     */
+    void merge(GameWrite newer) {
+        moves.addAll(newer.moves);
+        if (newer.snapshot != null) {
+            snapshot = newer.snapshot;
+            snapshotPly = newer.snapshotPly;
+        }
+        latest = newer.latest;
+        latestPly = newer.latestPly;
+    }
+
+    /**
+     * Replaces the queued moves with a snapshot of the state after the last of them
+     *
+     * @return False if there were no moves to replace
+     */
+    boolean replaceMovesWithSnapshot() {
+        if (moves.isEmpty()) {
+            return false;
+        }
+        moves.clear();
+        snapshot = latest;
+        snapshotPly = latestPly;
+        attempts = 0;
+        return true;
+    }
+
+    Integer gameId() {
+        return gameId;
+    }
+
+    List<LoggedMove> moves() {
+        return moves;
+    }
+
+    // The encoded state to store, or null if the snapshot is unchanged
+    byte[] snapshot() {
+        return snapshot;
+    }
+
+    int snapshotPly() {
+        return snapshotPly;
+    }
+
+    // Counts a failed attempt to write this, returning how many have failed
+    int failed() {
+        return ++attempts;
+    }
+}
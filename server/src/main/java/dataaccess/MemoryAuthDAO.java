@@ -0,0 +1,71 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MemoryAuthDAO implements AuthDataAccess {
+    private final ConcurrentHashMap<String, AuthData> byToken = new ConcurrentHashMap<>();
+    // A user's oldest token still held, matching which row a username lookup finds in MySQL
+    private final ConcurrentHashMap<String, AuthData> byUsername = new ConcurrentHashMap<>();
+
+    // Get Auth Info by Username
+    public AuthData getAuthInfoByUsername(String username) {
+        if (username == null) {
+            return null;
+        }
+        var auth = byUsername.get(username);
+        if (auth != null) {
+            return auth;
+        }
+        // The indexed token was removed, so fall back to any other token the user holds
+        for (var other : byToken.values()) {
+            if (other.username().equals(username)) {
+                byUsername.putIfAbsent(username, other);
+                return other;
+            }
+        }
+        return null;
+    }
+
+    // Get auth info from token
+    public AuthData getAuthInfoByToken(String token) {
+        return token == null ? null : byToken.get(token);
+    }
+
+    // Add user auth information
+    public void addAuthToken(String username, String authToken) throws Exception {
+        if (username == null || authToken == null) {
+            throw new DataAccessException(500, "Auth fields cannot be null");
+        }
+        var auth = new AuthData(username, authToken);
+        if (byToken.putIfAbsent(authToken, auth) != null) {
+            throw new DataAccessException(500, "Duplicate auth token");
+        }
+        byUsername.putIfAbsent(username, auth);
+    }
+
+    // Remove user auth information
+    public void removeAuthorization(String token) {
+        if (token == null) {
+            return;
+        }
+        var auth = byToken.remove(token);
+        if (auth != null) {
+            byUsername.remove(auth.username(), auth);
+        }
+    }
+
+    // Clear all auth information
+    public void clearAuths() {
+        byToken.clear();
+        byUsername.clear();
+    }
+
+    // Get all auth information
+    public Collection<AuthData> getAllAuths() {
+        return new ArrayList<>(byToken.values());
+    }
+}
@@ -0,0 +1,115 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import model.*;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps games in memory. Each game is held encoded with the binary codec, the same way
+ * the games.state column holds it, so a caller changing a game it read does not change
+ * the stored copy until it saves it. Games are kept sorted by id so the lobby lists them
+ * in creation order, as it does from MySQL.
+ */
+public class MemoryGameDAO implements GameDataAccess {
+    private record StoredGame(int gameId, String whiteUsername, String blackUsername, String gameName,
+                              byte[] state, int ply) {
+        StoredGame withState(ChessGame game) {
+            return new StoredGame(gameId, whiteUsername, blackUsername, gameName, GameCodec.BINARY.encode(game), game.getPly());
+        }
+    }
+
+    private final ConcurrentSkipListMap<Integer, StoredGame> games = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, Integer> idsByName = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    // Creates a new game
+    public void createNewGame(String gameName) throws Exception {
+        if (gameName == null) {
+            throw new DataAccessException(500, "Game name cannot be null");
+        }
+        // Reserve the name before taking an id so two creates with one name cannot both succeed
+        if (idsByName.putIfAbsent(gameName, 0) != null) {
+            throw new DataAccessException(500, String.format("Duplicate entry '%s' for games", gameName));
+        }
+        int gameId = nextId.getAndIncrement();
+        games.put(gameId, new StoredGame(gameId, "", "", gameName, GameCodec.BINARY.encode(new ChessGame()), 0));
+        idsByName.put(gameName, gameId);
+    }
+
+    // Get game by game name
+    public GameData getGameByName(String gameName) throws Exception {
+        if (gameName == null) {
+            return null;
+        }
+        var gameId = idsByName.get(gameName);
+        return gameId == null ? null : getGameById(gameId);
+    }
+
+    // Get game by game id
+    public GameData getGameById(Integer gameId) throws Exception {
+        if (gameId == null) {
+            return null;
+        }
+        var stored = games.get(gameId);
+        return stored == null ? null : readGame(stored);
+    }
+
+    private GameData readGame(StoredGame stored) throws DataAccessException {
+        var game = GameCodec.BINARY.decode(stored.state());
+        game.setPly(stored.ply());
+        return new GameData(stored.gameId(), stored.whiteUsername(), stored.blackUsername(), stored.gameName(), game);
+    }
+
+    // Store the game's whole current state
+    public void setGameById(Integer gameId, GameData gameData) {
+        games.computeIfPresent(gameId, (id, stored) -> stored.withState(gameData.getGame()));
+    }
+
+    // Moves are not logged separately, the game's state after the move is stored instead
+    public void addMove(Integer gameId, ChessMove move, ChessGame game) {
+        games.computeIfPresent(gameId, (id, stored) -> stored.withState(game));
+    }
+
+    // Clear all games, starting ids from 1 again
+    public void clearGames() {
+        games.clear();
+        idsByName.clear();
+        nextId.set(1);
+    }
+
+    // Get a page of games after the given id for the lobby, without decoding their boards
+    public List<GameData> listGames(int afterId, int limit, boolean openOnly) {
+        List<GameData> page = new ArrayList<>();
+        for (var stored : games.tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            if (!openOnly || stored.whiteUsername().isEmpty() || stored.blackUsername().isEmpty()) {
+                page.add(GameData.summary(stored.gameId(), stored.whiteUsername(), stored.blackUsername(), stored.gameName()));
+            }
+        }
+        return page;
+    }
+
+    // Add user to specified game by gameId
+    public void addUserToGame(String username, JoinGameData gameData) throws Exception {
+        if (Objects.equals(gameData.playerColor(), "WHITE")) {
+            games.computeIfPresent(gameData.gameID(), (id, stored) -> new StoredGame(id, username, stored.blackUsername(),
+                    stored.gameName(), stored.state(), stored.ply()));
+        } else if (Objects.equals(gameData.playerColor(), "BLACK")) {
+            games.computeIfPresent(gameData.gameID(), (id, stored) -> new StoredGame(id, stored.whiteUsername(), username,
+                    stored.gameName(), stored.state(), stored.ply()));
+        } else {
+            throw new DataAccessException(500, "Color passed in is not white or black.");
+        }
+    }
+
+    // Writes are applied immediately, so there is nothing to flush
+    public void flush() {
+    }
+}
@@ -0,0 +1,36 @@
+package dataaccess;
+
+import model.UserData;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MemoryUserDAO implements UserDataAccess {
+    private final ConcurrentHashMap<String, UserData> users = new ConcurrentHashMap<>();
+
+    // Gets user on username
+    public UserData getUser(String username) {
+        return username == null ? null : users.get(username);
+    }
+
+    // List all users
+    public Collection<UserData> listUsers() {
+        return new ArrayList<>(users.values());
+    }
+
+    // Add user, storing the given (hashed) password in place of the one in user
+    public void addUser(UserData user, String password) throws Exception {
+        if (user.username() == null || password == null || user.email() == null) {
+            throw new DataAccessException(500, "User fields cannot be null");
+        }
+        if (users.putIfAbsent(user.username(), new UserData(user.username(), password, user.email())) != null) {
+            throw new DataAccessException(500, String.format("Duplicate entry '%s' for users", user.username()));
+        }
+    }
+
+    // Clear users
+    public void clearUsers() {
+        users.clear();
+    }
+}
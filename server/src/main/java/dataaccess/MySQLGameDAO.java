@@ -1,6 +1,9 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.InvalidMoveException;
+import chess.PackedMove;
 import com.google.gson.Gson;
 import model.*;
 
@@ -12,9 +15,9 @@ public class MySQLGameDAO implements GameDataAccess {
     // Creates a new game and adds to database
     public void createNewGame(String gameName) throws Exception {
         try {
-            var statement = "INSERT INTO games (whiteusername, blackusername, gamename, game) VALUES (?, ?, ?, ?)";
-            var json = new Gson().toJson(new ChessGame());
-            DatabaseManager.executeUpdate(statement, "", "", gameName, json);
+            var statement = "INSERT INTO games (whiteusername, blackusername, gamename, state) VALUES (?, ?, ?, ?)";
+            var state = DatabaseManager.getGameCodec().encode(new ChessGame());
+            DatabaseManager.executeUpdate(statement, "", "", gameName, state);
         } catch (Exception e) {
             throw new DataAccessException(500, e.getMessage());
         }
@@ -28,7 +31,7 @@ public class MySQLGameDAO implements GameDataAccess {
                 ps.setString(1, gameName);
                 try(var rs = ps.executeQuery()) {
                     if(rs.next()) {
-                        return readGame(rs);
+                        return readGame(rs, loadMoves(conn, rs.getInt("gameid"), rs.getInt("snapshotply")));
                     }
                 }
             }
@@ -46,7 +49,7 @@ public class MySQLGameDAO implements GameDataAccess {
                 ps.setInt(1, gameId);
                 try(var rs = ps.executeQuery()) {
                     if(rs.next()) {
-                        return readGame(rs);
+                        return readGame(rs, loadMoves(conn, rs.getInt("gameid"), rs.getInt("snapshotply")));
                     }
                 }
             }
@@ -56,62 +59,162 @@ public class MySQLGameDAO implements GameDataAccess {
         return null;
     }
 
-    // Read game data from statement and pass back in GameData format
-    private GameData readGame(ResultSet rs) throws Exception {
+    // Read game data from statement and pass back in GameData format, replaying the moves logged since its snapshot
+    private GameData readGame(ResultSet rs, List<Integer> moves) throws Exception {
         int gameId = rs.getInt("gameid");
         var whiteUser = rs.getString("whiteusername");
         var blackUser = rs.getString("blackusername");
         var gameName = rs.getString("gamename");
-        var json = rs.getString("game");
-        var game = new Gson().fromJson(json, ChessGame.class);
+        var game = readChessGame(rs);
+        game.setPly(rs.getInt("snapshotply"));
+        for (int move : moves) {
+            try {
+                game.makeMove(PackedMove.toChessMove(move));
+            } catch (InvalidMoveException e) {
+                throw new DataAccessException(500, "Logged move " + (game.getPly() + 1) + " of game " + gameId + " is not legal");
+            }
+        }
         return new GameData(gameId, whiteUser, blackUser, gameName, game);
     }
 
+    // Decodes the state column, falling back to the JSON column for rows not yet upgraded
+    private static ChessGame readChessGame(ResultSet rs) throws Exception {
+        var state = rs.getBytes("state");
+        if (state != null) {
+            return GameCodec.decodeAny(state);
+        }
+        return readLegacyGame(rs.getString("game"));
+    }
+
+    // Reads a game stored as Gson JSON by an older server, which marked a resign with a piece at [0][0]
+    static ChessGame readLegacyGame(String json) {
+        var game = new Gson().fromJson(json, ChessGame.class);
+        if (game.getBoard().hasLegacyResignMarker()) {
+            game.setResigned(true);
+        }
+        return game;
+    }
+
+    // Get the packed moves a game has logged after its snapshot, in the order they were made
+    private static List<Integer> loadMoves(Connection conn, int gameId, int snapshotPly) throws SQLException {
+        List<Integer> moves = new ArrayList<>();
+        var statement = "SELECT move FROM moves WHERE gameid=? AND ply>? ORDER BY ply";
+        try (var ps = conn.prepareStatement(statement)) {
+            ps.setInt(1, gameId);
+            ps.setInt(2, snapshotPly);
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    moves.add(rs.getInt("move"));
+                }
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Re-encodes games stored as Gson JSON by older servers into the state column and clears
+     * their JSON. Called by the schema migration that adds the state column.
+     */
+    static void upgradeLegacyGames(Connection conn) throws SQLException {
+        var codec = DatabaseManager.getGameCodec();
+        var select = "SELECT gameid, game FROM games WHERE state IS NULL AND game IS NOT NULL";
+        var update = "UPDATE games SET state = ?, game = NULL WHERE gameid = ?";
+        try (var query = conn.prepareStatement(select); var rs = query.executeQuery();
+             var ps = conn.prepareStatement(update)) {
+            while (rs.next()) {
+                var game = readLegacyGame(rs.getString("game"));
+                ps.setBytes(1, codec.encode(game));
+                ps.setInt(2, rs.getInt("gameid"));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
     // Clear all games from database
     public void clearGames() throws Exception {
         try {
-            var statement = "TRUNCATE TABLE games";
-            DatabaseManager.executeUpdate(statement);
+            DatabaseManager.executeUpdate("TRUNCATE TABLE moves");
+            DatabaseManager.executeUpdate("TRUNCATE TABLE games");
         } catch(Exception e) {
             throw new DataAccessException(500, e.getMessage());
         }
     }
 
-    // Get all games in database
-    public Map<String, List<Map<String, Object>>> getAllGames() throws Exception {
-        List<Map<String, Object>> gameList = new ArrayList<>();
-        var statement = "SELECT * FROM games";
-
-        try (Connection conn = DatabaseManager.getConnection()) {
-             try(var ps = conn.prepareStatement(statement)) {
-                try (var rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        GameData game = readGame(rs);
-
-                        Map<String, Object> gameMap = new HashMap<>();
-                        gameMap.put("gameID", game.getGameId());
-                        gameMap.put("whiteUsername", !Objects.equals(game.getWhiteUsername(), "") ? game.getWhiteUsername() : null);
-                        gameMap.put("blackUsername", !Objects.equals(game.getBlackUsername(), "") ? game.getBlackUsername() : null);
-                        gameMap.put("gameName", game.getGameName());
-                        gameMap.put("game", game.getGame());
-
-                        gameList.add(gameMap);
-                    }
+    // Get a page of games after the given id for the lobby, with players and names but no board
+    public List<GameData> listGames(int afterId, int limit, boolean openOnly) throws Exception {
+        List<GameData> games = new ArrayList<>();
+        var statement = "SELECT gameid, whiteusername, blackusername, gamename FROM games WHERE gameid > ?" +
+                (openOnly ? " AND (whiteusername = '' OR whiteusername IS NULL OR blackusername = '' OR blackusername IS NULL)" : "") +
+                " ORDER BY gameid LIMIT ?";
+        try (var conn = DatabaseManager.getConnection(); var ps = conn.prepareStatement(statement)) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    games.add(GameData.summary(rs.getInt("gameid"), rs.getString("whiteusername"),
+                            rs.getString("blackusername"), rs.getString("gamename")));
                 }
-             }
+            }
         } catch (Exception e) {
             throw new DataAccessException(500, e.getMessage());
         }
-        return Map.of("games", gameList);
+        return games;
     }
 
+    // Overwrite the game's snapshot with its whole current state
     public void setGameById(Integer gameId, GameData game) throws Exception {
-        try {
-            var statement = "UPDATE games SET game = ? WHERE gameid = ?";
-            var json = new Gson().toJson(game.getGame());
-            DatabaseManager.executeUpdate(statement, json, gameId);
-        } catch (Exception e) {
-            throw new DataAccessException(500, e.getMessage());
+        writeBatch(List.of(GameWrite.snapshot(gameId, game.getGame(), DatabaseManager.getGameCodec())));
+    }
+
+    // Log a move just made in the game, and snapshot the game every snapshot interval moves
+    public void addMove(Integer gameId, ChessMove move, ChessGame game) throws Exception {
+        writeBatch(List.of(GameWrite.move(gameId, move, game, DatabaseManager.getGameCodec(),
+                DatabaseManager.getSnapshotInterval())));
+    }
+
+    // Writes go straight to the database, so there is nothing to flush
+    public void flush() {
+    }
+
+    /**
+     * Writes the moves and snapshots of several games in one transaction, batching the
+     * inserts and updates
+     */
+    void writeBatch(List<GameWrite> writes) throws DataAccessException {
+        var insert = "INSERT INTO moves (gameid, ply, move) VALUES (?, ?, ?)";
+        var snapshot = "UPDATE games SET state = ?, snapshotply = ?, game = NULL WHERE gameid = ?";
+        try (var conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (var moves = conn.prepareStatement(insert); var snapshots = conn.prepareStatement(snapshot)) {
+                boolean hasMoves = false;
+                boolean hasSnapshots = false;
+                for (var write : writes) {
+                    for (var move : write.moves()) {
+                        moves.setInt(1, write.gameId());
+                        moves.setInt(2, move.ply());
+                        moves.setInt(3, move.move());
+                        moves.addBatch();
+                        hasMoves = true;
+                    }
+                    if (write.snapshot() != null) {
+                        snapshots.setBytes(1, write.snapshot());
+                        snapshots.setInt(2, write.snapshotPly());
+                        snapshots.setInt(3, write.gameId());
+                        snapshots.addBatch();
+                        hasSnapshots = true;
+                    }
+                }
+                if (hasMoves) {
+                    moves.executeBatch();
+                }
+                if (hasSnapshots) {
+                    snapshots.executeBatch();
+                }
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            throw new DataAccessException(500, String.format("unable to write games to database, %s", e.getMessage()));
         }
     }
 
@@ -0,0 +1,114 @@
+package dataaccess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file of fixed-size records mapped into memory with FileChannel.map, so reading a
+ * record is a read from the page cache and writing one is a store into the mapping. The
+ * file grows by remapping it at twice its size. What marks a record as written is up to
+ * the owner; the bytes of a record that was never written are all zero.
+ * <p>
+ * Not thread safe, callers lock around it.
+ */
+final class RecordFile implements AutoCloseable {
+    private static final int INITIAL_RECORDS = 64;
+
+    // Room for a username as long as the 256 character column MySQL stores, at four bytes a character
+    static final int USERNAME_BYTES = 256 * 4;
+
+    private final FileChannel channel;
+    private final int recordSize;
+    private MappedByteBuffer map;
+
+    RecordFile(Path path, int recordSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.recordSize = recordSize;
+        long records = Math.max(INITIAL_RECORDS, (channel.size() + recordSize - 1) / recordSize);
+        remap(records);
+    }
+
+    /**
+     * @return Number of records the file can hold without growing
+     */
+    int capacity() {
+        return map.capacity() / recordSize;
+    }
+
+    /**
+     * @return A view of the record's bytes, growing the file first if it does not reach that far
+     */
+    ByteBuffer record(int index) throws IOException {
+        if (index >= capacity()) {
+            remap(Math.max((long) index + 1, 2L * capacity()));
+        }
+        return map.slice(index * recordSize, recordSize);
+    }
+
+    /**
+     * Zeroes every record from index to the end of the file. Only words that are not
+     * already zero are written, so the unused tail of the file is read but not dirtied.
+     */
+    void zeroFrom(int index) {
+        for (int i = index * recordSize; i < map.capacity(); i += Long.BYTES) {
+            if (map.getLong(i) != 0) {
+                map.putLong(i, 0);
+            }
+        }
+    }
+
+    /**
+     * Drops every record, shrinking the file back to its initial size
+     */
+    void clear() throws IOException {
+        channel.truncate(0);
+        remap(INITIAL_RECORDS);
+    }
+
+    /**
+     * Writes changed pages through to the disk
+     */
+    void force() {
+        map.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+
+    private void remap(long records) throws IOException {
+        long size = records * recordSize;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Record file cannot grow past 2GB");
+        }
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * Writes a string as a two byte length and its UTF-8 bytes
+     *
+     * @param maxBytes the most bytes the field has room for, not counting the length
+     * @throws DataAccessException if the string does not fit
+     */
+    static void putString(ByteBuffer record, int offset, int maxBytes, String value) throws DataAccessException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxBytes) {
+            throw new DataAccessException(500, String.format("'%s' is longer than the %d bytes file storage allows", value, maxBytes));
+        }
+        record.putShort(offset, (short) bytes.length);
+        record.put(offset + 2, bytes);
+    }
+
+    static String getString(ByteBuffer record, int offset) {
+        byte[] bytes = new byte[record.getShort(offset)];
+        record.get(offset + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
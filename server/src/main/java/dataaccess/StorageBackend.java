@@ -0,0 +1,98 @@
+package dataaccess;
+
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * Where the server keeps users, auth tokens and games. The backend is chosen with the
+ * db.backend setting. Each setting here is read from a system property of the same name
+ * first and db.properties second; db.backend defaults to MySQL.
+ * <p>
+ * The memory backend keeps everything in the server process and never touches the
+ * database, for load tests, benchmarks and single node environments without MySQL. Its
+ * data is lost when the server stops.
+ * <p>
+ * The file backend keeps data in memory-mapped files under db.file.directory, so a
+ * single node keeps its data across restarts without a MySQL server.
+ */
+public enum StorageBackend {
+    MYSQL,
+    MEMORY,
+    FILE;
+
+    private static final Properties PROPERTIES = loadProperties();
+    private static final StorageBackend CONFIGURED = valueOf(setting("db.backend", "mysql").trim().toUpperCase());
+
+    /**
+     * @return The backend selected by db.backend
+     */
+    public static StorageBackend configured() {
+        return CONFIGURED;
+    }
+
+    /**
+     * Creates the user DAO for this backend, creating the MySQL database and tables first
+     * if needed
+     */
+    public UserDataAccess newUserDataAccess() {
+        return switch (this) {
+            case MYSQL -> {
+                MySQLUserDAO.createDatabase();
+                yield new MySQLUserDAO();
+            }
+            case MEMORY -> new MemoryUserDAO();
+            case FILE -> fileStorage().users;
+        };
+    }
+
+    public AuthDataAccess newAuthDataAccess() {
+        return switch (this) {
+            case MYSQL -> new MySQLAuthDAO();
+            case MEMORY -> new MemoryAuthDAO();
+            case FILE -> fileStorage().auths;
+        };
+    }
+
+    // MySQL game writes go through the write-behind queue; memory and file writes are already cheap
+    public GameDataAccess newGameDataAccess() {
+        return switch (this) {
+            case MYSQL -> new WriteBehindGameDAO(new MySQLGameDAO());
+            case MEMORY -> new MemoryGameDAO();
+            case FILE -> fileStorage().games;
+        };
+    }
+
+    /**
+     * Releases the connections this backend holds, once queued game writes are written out.
+     * File storage flushes its own files when the process exits.
+     */
+    public void shutdown() {
+        if (this == MYSQL) {
+            DatabaseManager.shutdown();
+        }
+    }
+
+    private static FileStorage fileStorage() {
+        return FileStorage.open(Path.of(setting("db.file.directory", "chess-data")),
+                GameWrite.parseSnapshotInterval(setting("db.snapshotInterval", "16")));
+    }
+
+    /**
+     * @return The named setting from its system property, else from db.properties, else the default
+     */
+    public static String setting(String name, String defaultValue) {
+        return System.getProperty(name, PROPERTIES.getProperty(name, defaultValue));
+    }
+
+    private static Properties loadProperties() {
+        Properties props = new Properties();
+        try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
+            if (propStream != null) {
+                props.load(propStream);
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
+        }
+        return props;
+    }
+}
@@ -0,0 +1,427 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import model.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queues game moves and snapshots in memory and writes them to the database in batches
+ * from a background thread, so a websocket command does not wait on a commit before its
+ * broadcast goes out.
+ * <p>
+ * Writes to a game that is already queued are merged into its entry, so a busy game costs
+ * one entry however many moves it makes between flushes. A batch is written once the
+ * queue holds the batch size worth of updates or the flush interval passes. When the
+ * queue holds the maximum number of games, callers wait for a flush before adding another.
+ * <p>
+ * Reading a game first writes out that game's queued changes, and only that game's, so it
+ * sees every write made to it before the read; if they cannot be written the read fails
+ * rather than return an older copy. Creating games, joining and clearing go straight to
+ * the wrapped DAO. A game whose write fails stays
+ * queued and is retried, with the background flusher backing off while failures continue.
+ * Queued writes are never dropped: after a few failed attempts a game's queued moves are
+ * replaced by a snapshot of its state after the last of them, so a move row the database
+ * keeps refusing cannot leave a gap in the log.
+ */
+public class WriteBehindGameDAO implements GameDataAccess {
+    /**
+     * Writes every game in a batch to the database in one transaction
+     */
+    @FunctionalInterface
+    interface BatchWriter {
+        void write(List<GameWrite> writes) throws Exception;
+    }
+
+    /**
+     * @param maxPendingGames games the queue holds before callers wait for a flush
+     * @param batchSize queued updates that trigger a flush without waiting for the interval
+     * @param flushMillis longest time an update waits in the queue
+     */
+    public record Settings(int maxPendingGames, int batchSize, long flushMillis) {
+        /**
+         * Reads the db.writeBehind.* settings, using defaults for any that are missing
+         */
+        static Settings fromProperties(Properties props) {
+            return new Settings(
+                    Integer.parseInt(props.getProperty("db.writeBehind.maxPendingGames", "1024")),
+                    Integer.parseInt(props.getProperty("db.writeBehind.batchSize", "64")),
+                    Long.parseLong(props.getProperty("db.writeBehind.flushMillis", "50")));
+        }
+    }
+
+    /**
+     * A snapshot of the queue's counters
+     *
+     * @param pendingGames games currently queued
+     * @param enqueued updates handed to the queue
+     * @param coalesced updates merged into a game that was already queued
+     * @param flushes batches taken off the queue
+     * @param gamesWritten queued games written to the database
+     * @param failures batch or single game writes that failed
+     * @param replaced games whose queued moves were replaced by a snapshot after repeated failures
+     */
+    public record Metrics(int pendingGames, long enqueued, long coalesced, long flushes, long gamesWritten,
+                          long failures, long replaced) {
+    }
+
+    /**
+     * What a flush could not do
+     *
+     * @param failure the failure of the first game that went back on the queue, or null if all were written
+     * @param replacement the failure that made the first game's moves fall back to a snapshot, or null
+     */
+    private record FlushResult(DataAccessException failure, DataAccessException replacement) {
+        static final FlushResult WRITTEN = new FlushResult(null, null);
+    }
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+
+    private final GameDataAccess delegate;
+    private final BatchWriter writer;
+    private final GameCodec codec;
+    private final int snapshotInterval;
+    private final Settings settings;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushNeeded = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final LinkedHashMap<Integer, GameWrite> pending = new LinkedHashMap<>();
+    private int pendingUpdates;
+    // Held while a batch is written, so batches reach the database in the order they were taken
+    private final Object flushLock = new Object();
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder gamesWritten = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder replaced = new LongAdder();
+
+    public WriteBehindGameDAO(MySQLGameDAO delegate) {
+        this(delegate, delegate::writeBatch, DatabaseManager.getGameCodec(), DatabaseManager.getSnapshotInterval(),
+                DatabaseManager.getWriteBehindSettings());
+    }
+
+    WriteBehindGameDAO(GameDataAccess delegate, BatchWriter writer, GameCodec codec, int snapshotInterval,
+                       Settings settings) {
+        if (settings.maxPendingGames() < 1 || settings.batchSize() < 1 || settings.flushMillis() < 1) {
+            throw new IllegalArgumentException("Write-behind sizes and interval must be at least 1");
+        }
+        this.delegate = delegate;
+        this.writer = writer;
+        this.codec = codec;
+        this.snapshotInterval = GameWrite.checkSnapshotInterval(snapshotInterval);
+        this.settings = settings;
+
+        flusher = new Thread(this::runFlusher, "game-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public void createNewGame(String gameName) throws Exception {
+        delegate.createNewGame(gameName);
+    }
+
+    // The id is only known once the game is read, so it is read again if it had writes queued
+    public GameData getGameByName(String gameName) throws Exception {
+        var game = delegate.getGameByName(gameName);
+        if (game != null && flushGame(game.gameID())) {
+            return delegate.getGameById(game.gameID());
+        }
+        return game;
+    }
+
+    public GameData getGameById(Integer gameId) throws Exception {
+        flushGame(gameId);
+        return delegate.getGameById(gameId);
+    }
+
+    // Queue a snapshot of the game's whole current state
+    public void setGameById(Integer gameId, GameData gameData) throws Exception {
+        enqueue(GameWrite.snapshot(gameId, gameData.getGame(), codec));
+    }
+
+    // Queue a move just made in the game
+    public void addMove(Integer gameId, ChessMove move, ChessGame game) throws Exception {
+        enqueue(GameWrite.move(gameId, move, game, codec, snapshotInterval));
+    }
+
+    // Drop everything queued, then clear the database
+    public void clearGames() throws Exception {
+        synchronized (flushLock) {
+            lock.lock();
+            try {
+                pending.clear();
+                pendingUpdates = 0;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            delegate.clearGames();
+        }
+    }
+
+    // Only names and players are listed, and those are never queued, so this skips the flush
+    public List<GameData> listGames(int afterId, int limit, boolean openOnly) throws Exception {
+        return delegate.listGames(afterId, limit, openOnly);
+    }
+
+    public void addUserToGame(String username, JoinGameData gameData) throws Exception {
+        delegate.addUserToGame(username, gameData);
+    }
+
+    /**
+     * Writes everything queued before returning, retrying failed games and replacing their
+     * moves with a snapshot if they keep failing
+     *
+     * @throws DataAccessException if a game's moves were replaced by a snapshot, or the database
+     * still refuses a game after its retries, with the reason it failed. A refused game stays queued.
+     */
+    public void flush() throws DataAccessException {
+        DataAccessException failure = null;
+        for (int round = 1; hasPending(); round++) {
+            var result = flushPending();
+            if (failure == null) {
+                failure = result.replacement();
+            }
+            if (result.failure() != null && round >= 2 * MAX_ATTEMPTS) {
+                if (failure == null) {
+                    failure = result.failure();
+                }
+                break;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Stops the background flusher and waits for it to finish, then writes out everything
+     * still queued. Writes made after close are refused.
+     *
+     * @throws DataAccessException if the final flush could not write everything
+     */
+    public void close() throws DataAccessException {
+        closed = true;
+        flusher.interrupt();
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public Metrics metrics() {
+        lock.lock();
+        try {
+            return new Metrics(pending.size(), enqueued.sum(), coalesced.sum(), flushes.sum(), gamesWritten.sum(),
+                    failures.sum(), replaced.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(GameWrite write) throws InterruptedException, DataAccessException {
+        if (closed) {
+            throw new DataAccessException(500, "Game writes are closed");
+        }
+        lock.lockInterruptibly();
+        try {
+            while (pending.size() >= settings.maxPendingGames() && !pending.containsKey(write.gameId())) {
+                flushNeeded.signal();
+                notFull.await();
+            }
+            var existing = pending.get(write.gameId());
+            if (existing != null) {
+                existing.merge(write);
+                coalesced.increment();
+            } else {
+                pending.put(write.gameId(), write);
+            }
+            enqueued.increment();
+            if (++pendingUpdates >= settings.batchSize()) {
+                flushNeeded.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasPending() {
+        lock.lock();
+        try {
+            return !pending.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runFlusher() {
+        int failedFlushes = 0;
+        while (!closed) {
+            try {
+                if (failedFlushes > 0) {
+                    // Waits out new writes too, so a full batch does not retry a failing database early
+                    Thread.sleep(Math.min(settings.flushMillis() << Math.min(failedFlushes, 20), MAX_BACKOFF_MILLIS));
+                } else {
+                    awaitFlush();
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            failedFlushes = flushPending().failure() == null ? 0 : failedFlushes + 1;
+        }
+    }
+
+    // Waits for the flush interval, or less once a batch worth of updates is queued
+    private void awaitFlush() throws InterruptedException {
+        lock.lock();
+        try {
+            if (pendingUpdates < settings.batchSize()) {
+                flushNeeded.await(settings.flushMillis(), TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes everything queued and writes it as one batch. If the batch fails each game is
+     * written on its own, so one bad game does not hold back the rest, and the games that
+     * still fail go back on the front of the queue.
+     */
+    private FlushResult flushPending() {
+        synchronized (flushLock) {
+            List<GameWrite> batch;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return FlushResult.WRITTEN;
+                }
+                batch = new ArrayList<>(pending.values());
+                pending.clear();
+                pendingUpdates = 0;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            flushes.increment();
+            try {
+                writer.write(batch);
+                gamesWritten.add(batch.size());
+                return FlushResult.WRITTEN;
+            } catch (Exception e) {
+                failures.increment();
+            }
+
+            DataAccessException firstFailure = null;
+            DataAccessException firstReplacement = null;
+            List<GameWrite> retry = new ArrayList<>();
+            for (var write : batch) {
+                try {
+                    writer.write(List.of(write));
+                    gamesWritten.increment();
+                } catch (Exception e) {
+                    var failure = new DataAccessException(500, e.getMessage());
+                    if (firstFailure == null) {
+                        firstFailure = failure;
+                    }
+                    if (writeFailed(write, e) && firstReplacement == null) {
+                        firstReplacement = failure;
+                    }
+                    retry.add(write);
+                }
+            }
+            requeue(retry);
+            return new FlushResult(firstFailure, firstReplacement);
+        }
+    }
+
+    /**
+     * Writes out the changes queued for one game, after any batch already being written
+     *
+     * @return False if the game had nothing queued
+     * @throws DataAccessException if the game's changes could not be written; they stay queued
+     */
+    private boolean flushGame(Integer gameId) throws DataAccessException {
+        synchronized (flushLock) {
+            GameWrite write;
+            lock.lock();
+            try {
+                write = pending.remove(gameId);
+                if (write == null) {
+                    return false;
+                }
+                pendingUpdates = Math.max(0, pendingUpdates - 1);
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                writer.write(List.of(write));
+                gamesWritten.increment();
+                return true;
+            } catch (Exception e) {
+                writeFailed(write, e);
+                requeue(List.of(write));
+                throw new DataAccessException(500, "unable to write queued changes for game " + gameId + ": " +
+                        e.getMessage());
+            }
+        }
+    }
+
+    // Counts a failed write, replacing its moves with a snapshot once it has failed too often
+    private boolean writeFailed(GameWrite write, Exception e) {
+        failures.increment();
+        if (write.failed() >= MAX_ATTEMPTS && write.replaceMovesWithSnapshot()) {
+            replaced.increment();
+            System.err.println("Writing a snapshot in place of queued moves for game " + write.gameId() +
+                    ": " + e.getMessage());
+            return true;
+        }
+        return false;
+    }
+
+    // Puts failed writes back ahead of anything queued since, merging writes to the same game
+    private void requeue(List<GameWrite> failed) {
+        if (failed.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            var merged = new LinkedHashMap<Integer, GameWrite>();
+            for (var write : failed) {
+                merged.put(write.gameId(), write);
+            }
+            for (var write : pending.values()) {
+                var older = merged.get(write.gameId());
+                if (older != null) {
+                    older.merge(write);
+                } else {
+                    merged.put(write.gameId(), write);
+                }
+            }
+            pending.clear();
+            pending.putAll(merged);
+            pendingUpdates += failed.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -15,6 +15,7 @@ public class Server {
     private final Gson serializer = new Gson();
     private final UserService userService = new UserService();
     private final GameService gameService = new GameService(userService);
+    private final WebSocketHandler webSocketHandler = new WebSocketHandler(userService, gameService);
 
     public Server() {
     }
@@ -24,7 +25,7 @@ public class Server {
 
         Spark.staticFiles.location("web");
 
-        webSocket("/ws", WebSocketHandler.class);
+        webSocket("/ws", webSocketHandler);
 
         // Register your endpoints and handle exceptions here.
         Spark.post("/user", this::registerUser);
@@ -55,6 +56,9 @@ public class Server {
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        webSocketHandler.shutdown();
+        gameService.shutdown();
+        StorageBackend.configured().shutdown();
     }
 
     // Handles Server Exceptions
@@ -96,13 +100,26 @@ public class Server {
         return serializer.toJson(null);
     }
 
-    // Get all existing games and their information, requires authentication
+    // Get a page of existing games without their boards, requires authentication, takes optional after, limit and open parameters
     private Object getGames(Request req, Response res) throws Exception {
         var authToken = req.headers("Authorization");
-        var response = gameService.getAllGames(authToken);
+        var response = gameService.listGames(authToken, intParam(req, "after"), intParam(req, "limit"),
+                Boolean.parseBoolean(req.queryParams("open")));
         return serializer.toJson(response);
     }
 
+    private static Integer intParam(Request req, String name) throws ServerException {
+        var value = req.queryParams(name);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new ServerException(400, "Error: " + name + " must be a number");
+        }
+    }
+
     // Create a new game, requires authentication and game name
     private Object createGame(Request req, Response res) throws Exception {
         var authToken = req.headers("Authorization");
@@ -1,21 +1,173 @@
 package server.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import websocket.messages.ServerMessage.ServerMessageType;
 
-import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
 
+/**
+ * One auth token's websocket connection to a game. Messages are written asynchronously,
+ * one at a time, from a bounded queue: send only queues the message and returns, and each
+ * write's callback starts the next one. A client reading slowly therefore only backs up its
+ * own queue and never holds up the thread broadcasting a move.
+ * <p>
+ * When the queue is full a new board replaces a board or move still waiting in the queue,
+ * since the newest board carries them. Otherwise the overflow policy either drops the
+ * oldest queued message it safely can or closes the connection. A move is only dropped
+ * when a board queued after it covers it, so a client applying moves to its own board
+ * never misses one; when only such moves are queued the connection is closed instead.
+ */
 public class Connection {
+    private record Outbound(ServerMessageType type, String json) {
+    }
+
     public Integer gameId;
     public String authToken;
     public Session session;
+    // Whether the client asked for MOVE_APPLIED messages instead of a LOAD_GAME after each move
+    public final boolean moveDeltas;
+
+    private final ConnectionManager.Settings settings;
+    private final ConnectionManager.Counters counters;
+    private final ArrayDeque<Outbound> queue = new ArrayDeque<>();
+    // True while a write is in flight, whoever clears it starts the next write
+    private boolean writing;
+    private boolean closed;
 
-    public Connection(Integer gameId, String authToken, Session session) {
+    Connection(Integer gameId, String authToken, Session session, boolean moveDeltas, ConnectionManager.Settings settings,
+               ConnectionManager.Counters counters) {
         this.gameId = gameId;
         this.authToken = authToken;
         this.session = session;
+        this.moveDeltas = moveDeltas;
+        this.settings = settings;
+        this.counters = counters;
+    }
+
+    /**
+     * Queues a serialized message to be written after the ones already queued
+     */
+    public void send(ServerMessageType type, String json) {
+        Outbound next;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (queue.size() >= settings.queueSize() && !makeRoom(type)) {
+                disconnect();
+                return;
+            }
+            queue.add(new Outbound(type, json));
+            counters.queued.increment();
+            counters.maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+            if (writing) {
+                return;
+            }
+            writing = true;
+            next = queue.poll();
+        }
+        write(next);
+    }
+
+    /**
+     * @return Messages waiting behind the write in flight
+     */
+    public synchronized int queuedMessages() {
+        return queue.size();
+    }
+
+    // Frees one slot in a full queue, returning false to disconnect when the policy says so or nothing can go
+    private boolean makeRoom(ServerMessageType type) {
+        if (type == ServerMessageType.LOAD_GAME
+                && removeFirst(ServerMessageType.LOAD_GAME, ServerMessageType.MOVE_APPLIED)) {
+            counters.coalesced.increment();
+            return true;
+        }
+        if (settings.overflowPolicy() == ConnectionManager.OverflowPolicy.DISCONNECT) {
+            return false;
+        }
+        if (removeFirst(ServerMessageType.NOTIFICATION) || removeCoveredBoard() || removeFirst(ServerMessageType.ERROR)) {
+            counters.dropped.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean removeFirst(ServerMessageType... types) {
+        for (Iterator<Outbound> it = queue.iterator(); it.hasNext(); ) {
+            var queuedType = it.next().type();
+            for (var type : types) {
+                if (queuedType == type) {
+                    it.remove();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Removes the oldest board or move that a LOAD_GAME queued after it already covers
+    private boolean removeCoveredBoard() {
+        Outbound oldest = null;
+        for (var message : queue) {
+            if (oldest != null && message.type() == ServerMessageType.LOAD_GAME) {
+                queue.removeFirstOccurrence(oldest);
+                return true;
+            }
+            if (oldest == null && (message.type() == ServerMessageType.LOAD_GAME
+                    || message.type() == ServerMessageType.MOVE_APPLIED)) {
+                oldest = message;
+            }
+        }
+        return false;
+    }
+
+    private void disconnect() {
+        closed = true;
+        queue.clear();
+        counters.disconnected.increment();
+        session.close(StatusCode.POLICY_VIOLATION, "Client is not reading messages fast enough");
+    }
+
+    private void write(Outbound message) {
+        try {
+            session.getRemote().sendString(message.json(), new WriteCallback() {
+                @Override
+                public void writeSuccess() {
+                    counters.sent.increment();
+                    writeNext();
+                }
+
+                @Override
+                public void writeFailed(Throwable failure) {
+                    failed();
+                }
+            });
+        } catch (RuntimeException e) {
+            failed();
+        }
+    }
+
+    private void writeNext() {
+        Outbound next;
+        synchronized (this) {
+            next = queue.poll();
+            if (next == null) {
+                writing = false;
+                return;
+            }
+        }
+        write(next);
     }
 
-    public void send(String msg) throws IOException {
-        session.getRemote().sendString(msg);
+    // A failed write means the session is going away, its close event removes the connection
+    private synchronized void failed() {
+        counters.failed.increment();
+        closed = true;
+        writing = false;
+        queue.clear();
     }
-}
\ No newline at end of file
+}
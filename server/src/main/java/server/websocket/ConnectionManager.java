@@ -1,88 +1,288 @@
 package server.websocket;
 
 import com.google.gson.Gson;
+import dataaccess.StorageBackend;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import websocket.messages.*;
 
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Tracks the open websocket connections by auth token, and indexes them by game and by
+ * session so a broadcast only visits the connections in its game and a closed session
+ * only visits its own connections. The indexes are changed with compute calls, which are
+ * atomic per key, and a game's or session's entry is dropped when its last connection
+ * goes, so the indexes only hold live games and sessions.
+ * <p>
+ * A broadcast serializes its message once and sends the same JSON string to every
+ * connection in the game, so a game with many observers does not rebuild the board's
+ * JSON for each of them. A move goes out as a small MOVE_APPLIED to the connections that
+ * asked for move deltas, and as the whole game only to the rest. Sends only queue the
+ * message on each connection, which writes it asynchronously, so none of these methods
+ * wait on a client.
+ */
 public class ConnectionManager {
+    /**
+     * What a connection does when its outbound queue is full and the new message is not a
+     * board that can replace a queued one
+     */
+    public enum OverflowPolicy {
+        // Drop the oldest queued notification, then a move or board a later board covers, then an error
+        DROP_OLDEST,
+        // Close the connection, so the client has to reconnect and load the game again
+        DISCONNECT
+    }
+
+    /**
+     * @param queueSize messages a connection holds behind the write in flight
+     * @param overflowPolicy what to do when a connection's queue is full
+     */
+    public record Settings(int queueSize, OverflowPolicy overflowPolicy) {
+        public Settings {
+            if (queueSize < 1) {
+                throw new IllegalArgumentException("ws.outbound.queueSize must be at least 1, was " + queueSize);
+            }
+        }
+
+        /**
+         * Reads the ws.outbound.queueSize and ws.outbound.overflow settings the way the storage
+         * settings are read, using defaults for any that are missing
+         *
+         * @throws IllegalArgumentException if either setting is not valid
+         */
+        public static Settings configured() {
+            return parse(StorageBackend.setting("ws.outbound.queueSize", "64"),
+                    StorageBackend.setting("ws.outbound.overflow", "drop_oldest"));
+        }
+
+        static Settings parse(String queueSize, String overflowPolicy) {
+            int size;
+            try {
+                size = Integer.parseInt(queueSize.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("ws.outbound.queueSize must be a whole number, was '" + queueSize + "'");
+            }
+            OverflowPolicy policy;
+            try {
+                policy = OverflowPolicy.valueOf(overflowPolicy.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("ws.outbound.overflow must be drop_oldest or disconnect, was '"
+                        + overflowPolicy + "'");
+            }
+            return new Settings(size, policy);
+        }
+    }
+
+    /**
+     * A snapshot of the outbound counters, summed over every connection
+     *
+     * @param connections connections currently open
+     * @param queuedMessages messages currently waiting behind a write
+     * @param queued messages handed to a connection
+     * @param sent messages written to their client
+     * @param coalesced queued boards replaced by a newer one
+     * @param dropped messages dropped from a full queue
+     * @param disconnected connections closed because their queue was full
+     * @param failed writes that failed
+     * @param maxQueueDepth deepest any connection's queue has been
+     */
+    public record Metrics(int connections, int queuedMessages, long queued, long sent, long coalesced, long dropped,
+                          long disconnected, long failed, int maxQueueDepth) {
+    }
+
+    // Shared by every connection so the manager can report totals
+    static final class Counters {
+        final LongAdder queued = new LongAdder();
+        final LongAdder sent = new LongAdder();
+        final LongAdder coalesced = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final LongAdder disconnected = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final AtomicInteger maxQueueDepth = new AtomicInteger();
+    }
+
+    // Gson is thread safe once built, so one instance serves every send
+    private static final Gson GSON = new Gson();
+
+    private final Settings settings;
+    private final Counters counters = new Counters();
+
     public final ConcurrentHashMap<String, Connection> connections = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Set<Connection>> gameConnections = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Session, Set<Connection>> sessionConnections = new ConcurrentHashMap<>();
+
+    public ConnectionManager() {
+        this(Settings.configured());
+    }
+
+    public ConnectionManager(Settings settings) {
+        this.settings = settings;
+    }
+
+    public Metrics metrics() {
+        int queuedMessages = 0;
+        for (var c : connections.values()) {
+            queuedMessages += c.queuedMessages();
+        }
+        return new Metrics(connections.size(), queuedMessages, counters.queued.sum(), counters.sent.sum(),
+                counters.coalesced.sum(), counters.dropped.sum(), counters.disconnected.sum(), counters.failed.sum(),
+                counters.maxQueueDepth.get());
+    }
 
     public void add(Integer gameId, String authToken, Session session) {
-        var connection = new Connection(gameId, authToken, session);
-        connections.put(authToken, connection);
+        add(gameId, authToken, session, false);
+    }
+
+    public void add(Integer gameId, String authToken, Session session, boolean moveDeltas) {
+        var connection = new Connection(gameId, authToken, session, moveDeltas, settings, counters);
+        index(gameConnections, gameId, connection);
+        index(sessionConnections, session, connection);
+        var replaced = connections.put(authToken, connection);
+        if (replaced != null) {
+            unindex(replaced);
+        }
     }
 
     public void remove(String authToken) {
-        connections.remove(authToken);
+        var connection = connections.remove(authToken);
+        if (connection != null) {
+            unindex(connection);
+        }
     }
 
-    public void sendGame(LoadGameMessage message, String authToken) throws IOException {
+    // Removes every connection using a closed session and returns the games they were in
+    public Set<Integer> removeSession(Session session) {
+        var gameIds = new HashSet<Integer>();
+        for (var c : sessionConnections.getOrDefault(session, Set.of())) {
+            remove(c);
+            if (c.gameId != null) {
+                gameIds.add(c.gameId);
+            }
+        }
+        return gameIds;
+    }
+
+    public boolean hasConnections(Integer gameId) {
+        return gameId != null && gameConnections.containsKey(gameId);
+    }
+
+    private Set<Connection> connectionsInGame(Integer gameId) {
+        return gameId == null ? Set.of() : gameConnections.getOrDefault(gameId, Set.of());
+    }
+
+    // Removes the connection unless its token has since connected again
+    private void remove(Connection connection) {
+        connections.remove(connection.authToken, connection);
+        unindex(connection);
+    }
+
+    private void unindex(Connection connection) {
+        unindex(gameConnections, connection.gameId, connection);
+        unindex(sessionConnections, connection.session, connection);
+    }
+
+    // A connection without a game id is still kept by token so errors can reach it, but is not in a game
+    private static <K> void index(ConcurrentHashMap<K, Set<Connection>> index, K key, Connection connection) {
+        if (key == null) {
+            return;
+        }
+        index.compute(key, (k, set) -> {
+            var connections = set == null ? ConcurrentHashMap.<Connection>newKeySet() : set;
+            connections.add(connection);
+            return connections;
+        });
+    }
+
+    private static <K> void unindex(ConcurrentHashMap<K, Set<Connection>> index, K key, Connection connection) {
+        if (key == null) {
+            return;
+        }
+        index.computeIfPresent(key, (k, set) -> {
+            set.remove(connection);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    public void sendGame(LoadGameMessage message, String authToken) {
         var connection = connections.get(authToken);
         if (connection != null) {
-            Gson gson = new Gson();
-            String jsonNotification = gson.toJson(message);
-            connection.send(jsonNotification);
+            connection.send(message.getServerMessageType(), GSON.toJson(message));
         }
     }
 
+    // Sends an error to a session that has no connection, without waiting for the write
     public void sendErrorMessageNoAuth(String message, Session session) {
         if (session != null && session.isOpen()) {
-            try {
-                ErrorMessage errorMessage = new ErrorMessage(message);
-                Gson gson = new Gson();
-                String jsonNotification = gson.toJson(errorMessage);
-                session.getRemote().sendString(jsonNotification);
-            } catch (IOException ex) {
-                System.err.println("Failed to send error message");
-            }
+            ErrorMessage errorMessage = new ErrorMessage(message);
+            session.getRemote().sendString(GSON.toJson(errorMessage), new WriteCallback() {
+                @Override
+                public void writeSuccess() {
+                }
+
+                @Override
+                public void writeFailed(Throwable failure) {
+                    System.err.println("Failed to send error message");
+                }
+            });
         } else {
             System.err.println("Session is null or closed, unable to send message.");
         }
     }
 
-    public void sendErrorMessage(ErrorMessage message, String authToken) throws IOException {
+    public void sendErrorMessage(ErrorMessage message, String authToken) {
         var c = connections.get(authToken);
         if (c != null) {
-            Gson gson = new Gson();
-            String notification = gson.toJson(message);
-            c.send(notification);
+            c.send(message.getServerMessageType(), GSON.toJson(message));
         }
     }
 
-    public void broadcastGame(LoadGameMessage message, Integer gameId) throws IOException {
+    public void broadcastGame(LoadGameMessage message, Integer gameId) {
+        sendToGame(gameId, message, null);
+    }
+
+    // Sends a move to everyone in the game, as a MOVE_APPLIED to connections that asked for deltas and a LOAD_GAME to the rest
+    public void broadcastMove(Integer gameId, LoadGameMessage game, MoveAppliedMessage move) {
         var removeList = new ArrayList<Connection>();
-        Gson gson = new Gson();
+        String gameJson = null;
+        String moveJson = null;
 
-        for (var c : connections.values()) {
-            if (c.session.isOpen()) {
-                if (c.gameId.equals(gameId)) {
-                    String jsonNotification = gson.toJson(message);
-                    c.send(jsonNotification);
-                }
-            } else {
+        for (var c : connectionsInGame(gameId)) {
+            if (!c.session.isOpen()) {
                 removeList.add(c);
+            } else if (c.moveDeltas) {
+                moveJson = moveJson == null ? GSON.toJson(move) : moveJson;
+                c.send(move.getServerMessageType(), moveJson);
+            } else {
+                gameJson = gameJson == null ? GSON.toJson(game) : gameJson;
+                c.send(game.getServerMessageType(), gameJson);
             }
         }
 
         for (var c : removeList) {
-            connections.remove(c.authToken);
+            remove(c);
         }
     }
 
-    public void broadcast(Integer gameId, ServerMessage notification, String authToken) throws IOException {
+    public void broadcast(Integer gameId, ServerMessage notification, String authToken) {
+        sendToGame(gameId, notification, authToken);
+    }
+
+    // Serializes the message once and queues it for everyone in the game except the excluded token, dropping closed sessions
+    private void sendToGame(Integer gameId, ServerMessage message, String excludedAuthToken) {
         var removeList = new ArrayList<Connection>();
-        Gson gson = new Gson();
+        String json = GSON.toJson(message);
 
-        for (var c : connections.values()) {
+        for (var c : connectionsInGame(gameId)) {
             if (c.session.isOpen()) {
-                if (c.gameId.equals(gameId) && !c.authToken.equals(authToken)) {
-                    String jsonNotification = gson.toJson(notification);
-                    c.send(jsonNotification);
+                if (!c.authToken.equals(excludedAuthToken)) {
+                    c.send(message.getServerMessageType(), json);
                 }
             } else {
                 removeList.add(c);
@@ -90,7 +290,7 @@ public class ConnectionManager {
         }
 
         for (var c : removeList) {
-            connections.remove(c.authToken);
+            remove(c);
         }
     }
 }
@@ -0,0 +1,108 @@
+package server.websocket;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the websocket commands for each game one at a time, in the order they arrived,
+ * while commands for different games run in parallel. Each game with work waiting has a
+ * mailbox, a queue of commands drained by one virtual thread. The mailbox only exists
+ * while it has commands: the thread that drains it removes it once it is empty.
+ * <p>
+ * Adding a command and removing an empty mailbox both go through compute on the game's
+ * key, so a command is never added to a mailbox that was just removed, and a game never
+ * has two mailboxes draining at once.
+ * <p>
+ * Once closed, new commands are dropped rather than queued, since nothing would run them.
+ */
+public class GameMailboxes implements AutoCloseable {
+    private static final class Mailbox {
+        final ArrayDeque<Runnable> commands = new ArrayDeque<>();
+    }
+
+    private final ConcurrentHashMap<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private volatile boolean closed;
+
+    public GameMailboxes() {
+        this(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    GameMailboxes(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Queues a command behind the game's earlier commands. A command without a game id
+     * has nothing to be ordered with, so it runs on the calling thread.
+     */
+    public void submit(Integer gameId, Runnable command) {
+        if (closed) {
+            System.err.println("Dropping command for game " + gameId + ": mailboxes are closed");
+            return;
+        }
+        if (gameId == null) {
+            command.run();
+            return;
+        }
+        boolean[] started = {false};
+        mailboxes.compute(gameId, (id, mailbox) -> {
+            if (mailbox == null) {
+                mailbox = new Mailbox();
+                started[0] = true;
+            }
+            mailbox.commands.add(command);
+            return mailbox;
+        });
+        if (started[0]) {
+            try {
+                executor.execute(() -> drain(gameId));
+            } catch (RejectedExecutionException e) {
+                // Closed after the check above, so nothing will drain the mailbox just added
+                mailboxes.remove(gameId);
+                System.err.println("Dropping command for game " + gameId + ": mailboxes are closed");
+            }
+        }
+    }
+
+    /**
+     * @return Number of games with commands queued or running
+     */
+    public int activeGames() {
+        return mailboxes.size();
+    }
+
+    private void drain(Integer gameId) {
+        Runnable command;
+        while ((command = next(gameId)) != null) {
+            try {
+                command.run();
+            } catch (Throwable e) {
+                // Anything escaping here would leave the mailbox in place with nothing draining it
+                System.err.println("Command for game " + gameId + " failed: " + e);
+            }
+        }
+    }
+
+    // Takes the game's next command, or removes its mailbox and returns null when it has none
+    private Runnable next(Integer gameId) {
+        Runnable[] next = {null};
+        mailboxes.computeIfPresent(gameId, (id, mailbox) -> {
+            next[0] = mailbox.commands.poll();
+            return next[0] == null ? null : mailbox;
+        });
+        return next[0];
+    }
+
+    /**
+     * Stops taking commands and waits for the queued ones to finish
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.close();
+    }
+}
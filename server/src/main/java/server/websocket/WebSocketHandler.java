@@ -7,13 +7,15 @@ import service.*;
 import model.*;
 import server.ServerException;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
+import websocket.commands.ConnectCommand;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
 import websocket.messages.*;
 
-import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.Objects;
@@ -24,37 +26,72 @@ import static websocket.commands.UserGameCommand.CommandType.*;
 
 @WebSocket
 public class WebSocketHandler {
-    private UserService userService = new UserService();
-    private GameDataAccess gameDataAccess = new MySQLGameDAO();
-    private AuthDataAccess authDataAccess = new MySQLAuthDAO();
-
+    private final UserService userService;
+    private final AuthDataAccess authDataAccess;
+    private final ActiveGameRegistry activeGames;
 
+    // Built with the server, so bad ws.outbound settings stop it from starting rather than failing a connection
     private final ConnectionManager connections = new ConnectionManager();
+    private final GameMailboxes mailboxes = new GameMailboxes();
+    // Built once, the deserializer picks the command class from commandType
+    private static final Gson GSON = new Gson();
+    private static final Gson COMMAND_GSON = new GsonBuilder()
+            .registerTypeAdapter(UserGameCommand.class, new UserGameCommandDeserializer())
+            .create();
+
+    public WebSocketHandler(UserService userService, GameService gameService) {
+        this.userService = userService;
+        this.authDataAccess = userService.getAuthDataAccess();
+        this.activeGames = gameService.getActiveGames();
+    }
 
+    // Commands for a game run one at a time on its mailbox, so they never interleave on the live game
     @OnWebSocketMessage
     public void onMessage(Session session, String message) throws Exception {
-        Gson gson = new GsonBuilder()
-                .registerTypeAdapter(UserGameCommand.class, new UserGameCommandDeserializer())
-                .create();
-
-        UserGameCommand action = gson.fromJson(message, UserGameCommand.class);
+        UserGameCommand action = COMMAND_GSON.fromJson(message, UserGameCommand.class);
+        mailboxes.submit(action.getGameID(), () -> {
+            try {
+                runCommand(action, session);
+            } catch (Exception ex) {
+                // As Jetty does for an exception thrown from onMessage, end the session
+                System.err.println("Websocket command failed: " + ex.getMessage());
+                session.close(StatusCode.SERVER_ERROR, "Server error");
+            }
+        });
+    }
 
-        switch (action.getCommandType()) {
-            case CONNECT -> connectGame(action.getAuthToken(), action.getGameID(), session);
-            case MAKE_MOVE -> {
-                if (action instanceof MakeMoveCommand) {
-                    MakeMoveCommand makeMoveAction = (MakeMoveCommand) action;
-                    makeMove(makeMoveAction.getAuthToken(), makeMoveAction.getGameID(), makeMoveAction.getMove(), session);
-                } else {
-                    System.err.println("Invalid MAKE_MOVE command received.");
+    // A command can load its game without a connection to it, as from a session that never sent
+    // CONNECT, so the live copy is dropped afterwards unless someone is still watching the game
+    private void runCommand(UserGameCommand action, Session session) throws Exception {
+        try {
+            switch (action.getCommandType()) {
+                case CONNECT -> connectGame(action.getAuthToken(), action.getGameID(),
+                        action instanceof ConnectCommand connect && connect.wantsMoveDeltas(), session);
+                case MAKE_MOVE -> {
+                    if (action instanceof MakeMoveCommand) {
+                        MakeMoveCommand makeMoveAction = (MakeMoveCommand) action;
+                        makeMove(makeMoveAction.getAuthToken(), makeMoveAction.getGameID(), makeMoveAction.getMove(), session);
+                    } else {
+                        System.err.println("Invalid MAKE_MOVE command received.");
+                    }
                 }
+                case LEAVE -> leaveGame(action.getAuthToken(), action.getGameID(), session);
+                case RESIGN -> resignGame(action.getAuthToken(), action.getGameID(), session);
+                case RESYNC -> resyncGame(action.getAuthToken(), action.getGameID());
             }
-            case LEAVE -> leaveGame(action.getAuthToken(), action.getGameID(), session);
-            case RESIGN -> resignGame(action.getAuthToken(), action.getGameID(), session);
+        } finally {
+            releaseIfUnwatched(action.getGameID());
         }
     }
 
-    public class UserGameCommandDeserializer implements JsonDeserializer<UserGameCommand> {
+    @OnWebSocketClose
+    public void onClose(Session session, int statusCode, String reason) {
+        for (Integer gameId : connections.removeSession(session)) {
+            mailboxes.submit(gameId, () -> releaseIfUnwatched(gameId));
+        }
+    }
+
+    public static class UserGameCommandDeserializer implements JsonDeserializer<UserGameCommand> {
         @Override
         public UserGameCommand deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
             JsonObject jsonObject = json.getAsJsonObject();
@@ -65,20 +102,22 @@ public class WebSocketHandler {
 
             // Switch to handle specific subclasses
             switch (commandType) {
+                case CONNECT:
+                    return GSON.fromJson(json, ConnectCommand.class); // Deserialize as ConnectCommand
                 case MAKE_MOVE:
-                    return new Gson().fromJson(json, MakeMoveCommand.class); // Deserialize as MakeMoveCommand
+                    return GSON.fromJson(json, MakeMoveCommand.class); // Deserialize as MakeMoveCommand
                 default:
-                    return new Gson().fromJson(json, UserGameCommand.class); // Default to UserGameCommand
+                    return GSON.fromJson(json, UserGameCommand.class); // Default to UserGameCommand
             }
         }
     }
 
-    private void connectGame(String authToken, Integer gameId, Session session) throws ServerException {
+    private void connectGame(String authToken, Integer gameId, boolean moveDeltas, Session session) throws ServerException {
         try {
-            connections.add(gameId, authToken, session);
+            connections.add(gameId, authToken, session, moveDeltas);
 
             // Send game
-            GameData game = gameDataAccess.getGameById(gameId);
+            GameData game = activeGames.getGame(gameId);
             AuthData auth = authDataAccess.getAuthInfoByToken(authToken);
 
             if (game == null) {
@@ -104,19 +143,19 @@ public class WebSocketHandler {
         }
     }
 
-    private void makeMove(String authToken, Integer gameId, ChessMove move, Session session) throws ServerException {
+    private void makeMove(String authToken, Integer gameId, ChessMove move, Session session) {
         try {
             AuthData auth = authDataAccess.getAuthInfoByToken(authToken);
             if (auth == null) {
                 var message = String.format("ERROR: Invalid auth token ");
                 connections.sendErrorMessageNoAuth(message, session);
             } else {
-                GameData game = gameDataAccess.getGameById(gameId);
+                GameData game = activeGames.getGame(gameId);
                 ChessPosition start = move.getStartPosition();
                 ChessGame chessGame = game.getGame();
                 ChessBoard board = chessGame.getBoard();
 
-                if (board.getPiece(new ChessPosition(0, 0)) != null) {
+                if (chessGame.isResigned()) {
                     var message = String.format("ERROR: Cannot move, game has been resigned.");
                     var notification = new ErrorMessage(message);
                     connections.sendErrorMessage(notification, authToken);
@@ -143,18 +182,14 @@ public class WebSocketHandler {
                         return;
                     }
                 }
-                if(gameDataAccess.getGameById(gameId).getGame().isInCheckmate(ChessGame.TeamColor.BLACK)) {
-                    var message = String.format("ERROR: Cannot make move, %s is checkmate!", game.blackUsername());
-                    var notification = new ErrorMessage(message);
-                    connections.sendErrorMessage(notification, authToken);
-                    return;
-                } else if (gameDataAccess.getGameById(gameId).getGame().isInCheckmate(ChessGame.TeamColor.WHITE)) {
-                    var message = String.format("ERROR: Cannot make move, %s is checkmate!", game.whiteUsername());
+                ChessGame.GameStatus status = chessGame.evaluateStatus();
+                if (status == ChessGame.GameStatus.CHECKMATE) {
+                    String username = chessGame.getTeamTurn() == ChessGame.TeamColor.WHITE ? game.whiteUsername() : game.blackUsername();
+                    var message = String.format("ERROR: Cannot make move, %s is checkmate!", username);
                     var notification = new ErrorMessage(message);
                     connections.sendErrorMessage(notification, authToken);
                     return;
-                } else if (gameDataAccess.getGameById(gameId).getGame().isInStalemate(ChessGame.TeamColor.BLACK) ||
-                        gameDataAccess.getGameById(gameId).getGame().isInStalemate(ChessGame.TeamColor.WHITE)) {
+                } else if (status == ChessGame.GameStatus.STALEMATE) {
                     var message = String.format("ERROR: Cannot make move, is in stalemate!");
                     var notification = new ErrorMessage(message);
                     connections.sendErrorMessage(notification, authToken);
@@ -162,52 +197,42 @@ public class WebSocketHandler {
                 }
                 chessGame.makeMove(move);
                 GameData newGame = new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), chessGame);
-                gameDataAccess.setGameById(gameId, newGame);
-                game = gameDataAccess.getGameById(gameId);
-                var gameNotification = new LoadGameMessage(game);
-                connections.broadcastGame(gameNotification, gameId);
+                activeGames.recordMove(newGame, move);
+                ChessGame.GameStatus newStatus = chessGame.evaluateStatus();
+                var gameNotification = new LoadGameMessage(newGame);
+                var moveNotification = new MoveAppliedMessage(move, chessGame.getPly(), newStatus, chessGame.positionKey());
+                connections.broadcastMove(gameId, gameNotification, moveNotification);
                 UserData user = userService.getUserOnAuthToken(authToken);
                 var message = String.format("User %s has made their move.", user.getUsername());
                 var notification = new NotificationMessage(message);
                 connections.broadcast(gameId, notification, authToken);
 
-                if (gameDataAccess.getGameById(gameId).getGame().isInCheckmate(ChessGame.TeamColor.WHITE)) {
-                    var newmessage = "White is in checkmate!";
-                    var newnotification = new NotificationMessage(newmessage);
-                    connections.broadcast(gameId, newnotification, null);
-                } else if (gameDataAccess.getGameById(gameId).getGame().isInCheckmate(ChessGame.TeamColor.BLACK)) {
-                    var newmessage = "Black is in checkmate!";
+                String team = chessGame.getTeamTurn() == ChessGame.TeamColor.WHITE ? "White" : "Black";
+                if (newStatus == ChessGame.GameStatus.CHECKMATE) {
+                    var newmessage = String.format("%s is in checkmate!", team);
                     var newnotification = new NotificationMessage(newmessage);
                     connections.broadcast(gameId, newnotification, null);
-                } else if (gameDataAccess.getGameById(gameId).getGame().isInCheck(ChessGame.TeamColor.BLACK)) {
-                    var newmessage = "Black is in check!";
-                    var newnotification = new NotificationMessage(newmessage);
-                    connections.broadcast(gameId, newnotification, null);
-                } else if (gameDataAccess.getGameById(gameId).getGame().isInCheck(ChessGame.TeamColor.WHITE)) {
-                    var newmessage = "White is in check!";
+                } else if (newStatus == ChessGame.GameStatus.CHECK) {
+                    var newmessage = String.format("%s is in check!", team);
                     var newnotification = new NotificationMessage(newmessage);
                     connections.broadcast(gameId, newnotification, null);
                 }
             }
         } catch (Exception ex) {
-            try {
-                var notification = new ErrorMessage(ex.getMessage());
-                connections.sendErrorMessage(notification, authToken);
-            } catch (IOException e) {
-                throw new ServerException(400, "WebsocketHandler Make Move Error " + ex.getMessage());
-            }
+            var notification = new ErrorMessage(ex.getMessage());
+            connections.sendErrorMessage(notification, authToken);
         }
     }
 
     private void leaveGame(String authToken, Integer gameId, Session session) throws ServerException {
         try {
-            GameData game = gameDataAccess.getGameById(gameId);
+            GameData game = activeGames.getGame(gameId);
             UserData user = userService.getUserOnAuthToken(authToken);
 
             if (Objects.equals(user.username(), game.blackUsername())) {
-                gameDataAccess.addUserToGame("", new JoinGameData("BLACK", gameId));
+                activeGames.setPlayer("", new JoinGameData("BLACK", gameId));
             } else if (Objects.equals(user.username(), game.whiteUsername())) {
-                gameDataAccess.addUserToGame("", new JoinGameData("WHITE", gameId));
+                activeGames.setPlayer("", new JoinGameData("WHITE", gameId));
             }
 
             connections.remove(authToken);
@@ -221,12 +246,11 @@ public class WebSocketHandler {
 
     private void resignGame(String authToken, Integer gameId, Session session) throws ServerException {
         try {
-            GameData game = gameDataAccess.getGameById(gameId);
+            GameData game = activeGames.getGame(gameId);
             ChessGame chessGame = game.getGame();
-            ChessBoard chessBoard = chessGame.getBoard();
             UserData user = userService.getUserOnAuthToken(authToken);
 
-            if (chessBoard.getPiece(new ChessPosition(0, 0)) != null) {
+            if (chessGame.isResigned()) {
                 var message = String.format("ERROR: Cannot resign, already resigned.");
                 var notification = new ErrorMessage(message);
                 connections.sendErrorMessage(notification, authToken);
@@ -241,10 +265,9 @@ public class WebSocketHandler {
             }
 
             // Mark game as resigned
-            chessBoard.addPiece(new ChessPosition(0, 0), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-            chessGame.setBoard(chessBoard);
+            chessGame.setResigned(true);
             GameData newGame = new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(), chessGame);
-            gameDataAccess.setGameById(gameId, newGame);
+            activeGames.updateGame(newGame);
 
             var message = String.format("User %s has resigned!", user.getUsername());
             var notification = new NotificationMessage(message);
@@ -253,4 +276,31 @@ public class WebSocketHandler {
             throw new ServerException(400, "WebsocketHandler Resign Game Error " + ex.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // Sends the requesting client the whole game again, after a MOVE_APPLIED did not match its copy
+    private void resyncGame(String authToken, Integer gameId) throws ServerException {
+        try {
+            GameData game = activeGames.getGame(gameId);
+            if (game == null) {
+                var notification = new ErrorMessage("ERROR: Invalid game id ");
+                connections.sendErrorMessage(notification, authToken);
+                return;
+            }
+            connections.sendGame(new LoadGameMessage(game), authToken);
+        } catch (Exception ex) {
+            throw new ServerException(400, "WebsocketHandler Resync Game Error " + ex.getMessage());
+        }
+    }
+
+    // Waits for the commands already queued, called as the server stops
+    public void shutdown() {
+        mailboxes.close();
+    }
+
+    // Drops the live copy of a game once nobody is connected to it
+    private void releaseIfUnwatched(Integer gameId) {
+        if (gameId != null && !connections.hasConnections(gameId)) {
+            activeGames.release(gameId);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package service;
+
+import chess.ChessMove;
+import dataaccess.*;
+import model.*;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the live copy of every game that has websocket sessions connected to it. Websocket
+ * commands read and change the game here, so a move costs one database write rather than
+ * a load and deserialize of the whole game for every check. The database stays the durable
+ * store and is still read the first time a game is asked for.
+ * <p>
+ * Callers change the live game in place and then save it here. If the save fails, the
+ * live copy is dropped so the game is read back from the database, without the change,
+ * the next time it is asked for.
+ */
+public class ActiveGameRegistry {
+    private final GameDataAccess gameDataAccess;
+    private final ConcurrentHashMap<Integer, GameData> games = new ConcurrentHashMap<>();
+
+    public ActiveGameRegistry(GameDataAccess gameDataAccess) {
+        this.gameDataAccess = gameDataAccess;
+    }
+
+    // Returns the live game, loading it from the database the first time it is asked for
+    public GameData getGame(Integer gameId) throws Exception {
+        var game = games.get(gameId);
+        if (game != null) {
+            return game;
+        }
+
+        game = gameDataAccess.getGameById(gameId);
+        if (game == null) {
+            return null;
+        }
+        var existing = games.putIfAbsent(gameId, game);
+        return existing != null ? existing : game;
+    }
+
+    // Saves the game's new state to the database and keeps its board as the live copy's
+    public void updateGame(GameData game) throws Exception {
+        try {
+            gameDataAccess.setGameById(game.gameID(), game);
+        } catch (Exception e) {
+            discardChange(game.gameID());
+            throw e;
+        }
+        keepBoard(game);
+    }
+
+    // Logs a move just made in the live game and keeps its board as the live copy's
+    public void recordMove(GameData game, ChessMove move) throws Exception {
+        try {
+            gameDataAccess.addMove(game.gameID(), move, game.getGame());
+        } catch (Exception e) {
+            discardChange(game.gameID());
+            throw e;
+        }
+        keepBoard(game);
+    }
+
+    // Only the board is taken from the caller, players may have joined since it read the game
+    private void keepBoard(GameData game) {
+        games.computeIfPresent(game.gameID(), (id, current) ->
+                new GameData(id, current.whiteUsername(), current.blackUsername(), current.gameName(), game.getGame()));
+    }
+
+    // The live game already holds a change the database never got, so drop it and load the game again on next use
+    private void discardChange(Integer gameId) {
+        games.remove(gameId);
+    }
+
+    // Sets or clears (with an empty username) a player's color, in the database and in the live copy
+    public void setPlayer(String username, JoinGameData gameData) throws Exception {
+        gameDataAccess.addUserToGame(username, gameData);
+        games.computeIfPresent(gameData.gameID(), (id, game) -> Objects.equals(gameData.playerColor(), "WHITE")
+                ? new GameData(id, username, game.blackUsername(), game.gameName(), game.game())
+                : new GameData(id, game.whiteUsername(), username, game.gameName(), game.game()));
+    }
+
+    // Drops the live copy once no sessions are connected to the game
+    public void release(Integer gameId) {
+        games.remove(gameId);
+    }
+
+    public boolean isActive(Integer gameId) {
+        return games.containsKey(gameId);
+    }
+
+    public void clear() {
+        games.clear();
+    }
+}
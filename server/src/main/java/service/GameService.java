@@ -3,17 +3,28 @@ package service;
 import dataaccess.*;
 import model.*;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 public class GameService {
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private final GameDataAccess gameDataAccess;
     private final UserService userService;
+    private final ActiveGameRegistry activeGames;
 
+    // Uses the storage backend chosen by db.backend
     public GameService(UserService userService) {
-        this.gameDataAccess = new MySQLGameDAO();
+        this(userService, StorageBackend.configured().newGameDataAccess());
+    }
+
+    public GameService(UserService userService, GameDataAccess gameDataAccess) {
+        this.gameDataAccess = gameDataAccess;
         this.userService = userService;
+        this.activeGames = new ActiveGameRegistry(gameDataAccess);
     }
 
     // Create a new game using given game information, checks user authorization
@@ -35,15 +46,50 @@ public class GameService {
             userService.clearUsers();
             userService.clearAuths();
             gameDataAccess.clearGames();
+            activeGames.clear();
         } catch (Exception e) {
             throw new ServiceException(500, "Error: error thrown in clear database");
         }
     }
 
-    // Returns all existing games, checks user authorization
-    public Map<String, List<Map<String, Object>>> getAllGames(String authToken) throws Exception {
+    // Writes out game updates still queued for the database and stops the write-behind thread, called as the server stops
+    public void shutdown() {
+        try {
+            if (gameDataAccess instanceof WriteBehindGameDAO writeBehind) {
+                writeBehind.close();
+            } else {
+                gameDataAccess.flush();
+            }
+        } catch (Exception e) {
+            System.err.println("Unable to write queued games: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns one page of the lobby, the games after the given id in id order with their
+     * players and names but not their boards. The result holds the page under "games", and
+     * under "next" the id to pass as after for the following page, left out on the last page.
+     *
+     * @param after    only list games with a greater id, null to start from the first game
+     * @param limit    most games to return, null for DEFAULT_PAGE_SIZE
+     * @param openOnly only list games with a seat still free
+     */
+    public Map<String, Object> listGames(String authToken, Integer after, Integer limit, boolean openOnly) throws Exception {
         userService.authorizeUser(authToken);
-        return gameDataAccess.getAllGames();
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new ServiceException(400, "Error: limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        // Ask for one extra game to learn whether there is another page without counting
+        List<GameData> games = gameDataAccess.listGames(after == null ? 0 : after, pageSize + 1, openOnly);
+        Map<String, Object> page = new HashMap<>();
+        if (games.size() > pageSize) {
+            games = games.subList(0, pageSize);
+            page.put("next", games.get(pageSize - 1).gameID());
+        }
+        page.put("games", games);
+        return page;
     }
 
     // Adds user to game as requested color, checks user authorization and that the color is WHITE or BLACK
@@ -52,12 +98,13 @@ public class GameService {
         // Check color is black or white and that game exists
         if (!Objects.equals(gameData.playerColor(), "WHITE") && !Objects.equals(gameData.playerColor(), "BLACK")) {
             throw new ServiceException(400, "Error: Color must be 'WHITE' or 'BLACK'");
-        } else if (gameData.gameID() == null || Objects.equals(gameDataAccess.getGameById(gameData.gameID()), null)) {
+        }
+        GameData game = gameData.gameID() == null ? null : gameDataAccess.getGameById(gameData.gameID());
+        if (game == null) {
             throw new ServiceException(400, "Error: Bad game ID");
         }
 
         // Check if color is already taken
-        GameData game = gameDataAccess.getGameById(gameData.gameID());
         if (Objects.equals(gameData.playerColor(), "WHITE")) {
             if(!Objects.equals(game.whiteUsername(), "")) {
                 throw new ServiceException(403, "Error: color already taken");
@@ -69,7 +116,7 @@ public class GameService {
         }
 
         UserData user = userService.getUserOnAuthToken(authToken);
-        gameDataAccess.addUserToGame(user.username(), gameData);
+        activeGames.setPlayer(user.username(), gameData);
     }
 
     // ------ HELPER FUNCTIONS FOR SERVICE TESTS ------ //
@@ -77,4 +124,8 @@ public class GameService {
         return gameDataAccess;
     }
 
+    public ActiveGameRegistry getActiveGames() {
+        return activeGames;
+    }
+
 }
\ No newline at end of file
@@ -12,10 +12,14 @@ public class UserService {
     final private static String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
     final private static int AUTHLENGTH = 20;
 
+    // Uses the storage backend chosen by db.backend
     public UserService() {
-        this.userDataAccess = new MySQLUserDAO();
-        this.authDataAccess = new MySQLAuthDAO();
-        MySQLUserDAO.createDatabase();
+        this(StorageBackend.configured().newUserDataAccess(), StorageBackend.configured().newAuthDataAccess());
+    }
+
+    public UserService(UserDataAccess userDataAccess, AuthDataAccess authDataAccess) {
+        this.userDataAccess = userDataAccess;
+        this.authDataAccess = authDataAccess;
     }
 
     // Checks passed data to make user all data exists, checks that username 
@@ -0,0 +1,197 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConnectionPoolTests {
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicBoolean valid = new AtomicBoolean(true);
+    private final AtomicInteger prepared = new AtomicInteger();
+    private final AtomicInteger statementsClosed = new AtomicInteger();
+    private final AtomicBoolean batchFails = new AtomicBoolean();
+
+    // Stands in for a MySQL connection, only answering the calls the pool makes
+    private Connection fakeConnection() {
+        opened.incrementAndGet();
+        var closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> {
+                        closed.set(true);
+                        yield null;
+                    }
+                    case "isClosed" -> closed.get();
+                    case "isValid" -> valid.get();
+                    case "getAutoCommit" -> true;
+                    case "prepareStatement" -> fakeStatement();
+                    default -> null;
+                });
+    }
+
+    private PreparedStatement fakeStatement() {
+        prepared.incrementAndGet();
+        var batched = new AtomicInteger();
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> {
+                        statementsClosed.incrementAndGet();
+                        yield null;
+                    }
+                    case "addBatch" -> {
+                        batched.incrementAndGet();
+                        yield null;
+                    }
+                    case "clearBatch" -> {
+                        batched.set(0);
+                        yield null;
+                    }
+                    case "executeBatch" -> {
+                        if (batchFails.get()) {
+                            throw new SQLException("batch failed");
+                        }
+                        yield new int[batched.getAndSet(0)];
+                    }
+                    default -> null;
+                });
+    }
+
+    private ConnectionPool pool(int maxSize, long maxWaitMillis) {
+        return new ConnectionPool(this::fakeConnection, 0, maxSize, maxWaitMillis, 600000, 1, 2);
+    }
+
+    @Test
+    @DisplayName("Closed Connection Is Reused")
+    public void testReuse() throws Exception {
+        var pool = pool(2, 100);
+
+        pool.borrow().close();
+        pool.borrow().close();
+
+        assertEquals(1, opened.get());
+        var metrics = pool.metrics();
+        assertEquals(2, metrics.borrows());
+        assertEquals(0, metrics.active());
+        assertEquals(1, metrics.idle());
+    }
+
+    @Test
+    @DisplayName("Borrow Times Out At Max Size")
+    public void testMaxSize() throws Exception {
+        var pool = pool(1, 50);
+        var conn = pool.borrow();
+
+        DataAccessException exception = assertThrows(DataAccessException.class, pool::borrow);
+        assertEquals(500, exception.statusCode());
+        assertEquals(1, pool.metrics().timeouts());
+
+        conn.close();
+        assertNotNull(pool.borrow());
+    }
+
+    @Test
+    @DisplayName("Returned Connection Cannot Be Used")
+    public void testUseAfterClose() throws Exception {
+        var pool = pool(1, 50);
+        var conn = pool.borrow();
+        conn.close();
+
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+    }
+
+    @Test
+    @DisplayName("Invalid Connection Is Replaced")
+    public void testValidation() throws Exception {
+        var pool = pool(1, 50);
+        pool.borrow().close();
+        Thread.sleep(600);
+        valid.set(false);
+
+        pool.borrow().close();
+
+        assertEquals(2, opened.get());
+        assertEquals(1, pool.metrics().evicted());
+    }
+
+    @Test
+    @DisplayName("Statement Reused Across Borrows")
+    public void testStatementCacheHit() throws Exception {
+        var pool = pool(1, 50);
+
+        for (int i = 0; i < 3; i++) {
+            try (var conn = pool.borrow(); var ps = conn.prepareStatement("SELECT * FROM games WHERE gameid=?")) {
+                ps.setInt(1, i);
+            }
+        }
+
+        assertEquals(1, prepared.get());
+        assertEquals(0, statementsClosed.get());
+        var metrics = pool.metrics();
+        assertEquals(2, metrics.statementHits());
+        assertEquals(1, metrics.statementMisses());
+    }
+
+    @Test
+    @DisplayName("Least Recently Used Statement Evicted")
+    public void testStatementCacheEviction() throws Exception {
+        var pool = pool(1, 50);
+
+        try (var conn = pool.borrow()) {
+            conn.prepareStatement("SELECT 1").close();
+            conn.prepareStatement("SELECT 2").close();
+            conn.prepareStatement("SELECT 1").close();
+            conn.prepareStatement("SELECT 3").close();
+            conn.prepareStatement("SELECT 1").close();
+            conn.prepareStatement("SELECT 2").close();
+        }
+
+        assertEquals(4, prepared.get());
+        assertEquals(2, statementsClosed.get());
+        assertEquals(2, pool.metrics().statementEvictions());
+    }
+
+    @Test
+    @DisplayName("Statement In Use Not Shared")
+    public void testStatementInUse() throws Exception {
+        var pool = pool(1, 50);
+
+        try (var conn = pool.borrow()) {
+            var first = conn.prepareStatement("SELECT 1");
+            var second = conn.prepareStatement("SELECT 1");
+            assertNotSame(first, second);
+            second.close();
+            first.close();
+            assertThrows(SQLException.class, () -> first.setInt(1, 1));
+        }
+
+        assertEquals(2, prepared.get());
+    }
+
+    @Test
+    @DisplayName("Failed Batch Not Run For Next Caller")
+    public void testFailedBatchCleared() throws Exception {
+        var pool = pool(1, 50);
+        var statement = "INSERT INTO moves (gameid, ply, move) VALUES (?, ?, ?)";
+
+        batchFails.set(true);
+        try (var conn = pool.borrow(); var ps = conn.prepareStatement(statement)) {
+            ps.addBatch();
+            ps.addBatch();
+            assertThrows(SQLException.class, ps::executeBatch);
+        }
+
+        batchFails.set(false);
+        try (var conn = pool.borrow(); var ps = conn.prepareStatement(statement)) {
+            ps.addBatch();
+            assertEquals(1, ps.executeBatch().length);
+        }
+        assertEquals(1, prepared.get());
+    }
+}
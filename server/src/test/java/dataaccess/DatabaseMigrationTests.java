@@ -0,0 +1,140 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessPiece;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import model.*;
+import org.junit.jupiter.api.*;
+import service.UserService;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatabaseMigrationTests {
+
+    @BeforeEach
+    void setup() {
+        // Creates the database and runs the migrations
+        new UserService();
+    }
+
+    private Set<String> indexNames(String table) throws Exception {
+        var names = new HashSet<String>();
+        try (var conn = DatabaseManager.getConnection(); var ps = conn.prepareStatement("SHOW INDEX FROM " + table)) {
+            try (var rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    names.add(rs.getString("Key_name"));
+                }
+            }
+        }
+        return names;
+    }
+
+    @Test
+    @DisplayName("Schema At Latest Version")
+    public void testSchemaVersion() throws Exception {
+        try (var conn = DatabaseManager.getConnection()) {
+            assertEquals(DatabaseManager.getLatestSchemaVersion(), DatabaseManager.getSchemaVersion(conn));
+        }
+    }
+
+    @Test
+    @DisplayName("Lookup Columns Indexed")
+    public void testIndexes() throws Exception {
+        assertTrue(indexNames("auths").containsAll(Set.of("auths_token", "auths_username")));
+        assertTrue(indexNames("users").contains("users_username"));
+        assertTrue(indexNames("games").contains("games_gamename"));
+    }
+
+    @Test
+    @DisplayName("Migrations Run Again Safely")
+    public void testMigrationsIdempotent() throws Exception {
+        DatabaseManager.createDatabase();
+        DatabaseManager.createDatabase();
+
+        try (var conn = DatabaseManager.getConnection()) {
+            assertEquals(DatabaseManager.getLatestSchemaVersion(), DatabaseManager.getSchemaVersion(conn));
+        }
+    }
+
+    @Test
+    @DisplayName("Duplicate Rows Cleared Before Unique Indexes")
+    public void testMigrateDuplicates() throws Exception {
+        new MySQLGameDAO().clearGames();
+        DatabaseManager.executeUpdate("TRUNCATE TABLE users");
+        DatabaseManager.executeUpdate("TRUNCATE TABLE auths");
+        // Back to a database from before the indexes, holding rows older servers allowed
+        for (var statement : new String[]{"DROP INDEX auths_token ON auths", "DROP INDEX auths_username ON auths",
+                "DROP INDEX users_username ON users", "DROP INDEX games_gamename ON games",
+                "DELETE FROM schema_version"}) {
+            DatabaseManager.executeUpdate(statement);
+        }
+        for (int i = 0; i < 2; i++) {
+            DatabaseManager.executeUpdate("INSERT INTO users (username, password, email) VALUES (?, ?, ?)",
+                    "username", "hashedpassword", "email");
+            DatabaseManager.executeUpdate("INSERT INTO auths (username, token) VALUES (?, ?)", "username", "token");
+            DatabaseManager.executeUpdate("INSERT INTO games (whiteusername, blackusername, gamename) VALUES (?, ?, ?)",
+                    "", "", "gameName");
+        }
+
+        DatabaseManager.createDatabase();
+
+        try (var conn = DatabaseManager.getConnection()) {
+            assertEquals(DatabaseManager.getLatestSchemaVersion(), DatabaseManager.getSchemaVersion(conn));
+        }
+        assertTrue(indexNames("games").contains("games_gamename"));
+        var games = new MySQLGameDAO().listGames(0, 10, false);
+        assertEquals(List.of("gameName", "gameName (2)"), games.stream().map(GameData::gameName).toList());
+        assertEquals(1, count("SELECT COUNT(*) FROM auths WHERE token = 'token'"));
+        assertEquals(1, count("SELECT COUNT(*) FROM users WHERE username = 'username'"));
+        assertEquals(2, count("SELECT COUNT(*) FROM users"));
+    }
+
+    private int count(String query) throws Exception {
+        try (var conn = DatabaseManager.getConnection(); var ps = conn.prepareStatement(query); var rs = ps.executeQuery()) {
+            assertTrue(rs.next());
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Legacy Resigned Game Upgraded As Resigned")
+    public void testUpgradeLegacyResign() throws Exception {
+        var gameDataAccess = new MySQLGameDAO();
+        gameDataAccess.clearGames();
+
+        // Older servers stored games as Gson JSON with no resigned field and a piece at [0][0] once resigned
+        var gson = new Gson();
+        var json = gson.toJsonTree(new ChessGame()).getAsJsonObject();
+        json.remove("resigned");
+        json.remove("ply");
+        JsonArray firstRow = json.getAsJsonObject("currentBoard").getAsJsonArray("board").get(0).getAsJsonArray();
+        firstRow.set(0, gson.toJsonTree(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN)));
+        int gameId = DatabaseManager.executeUpdate(
+                "INSERT INTO games (whiteusername, blackusername, gamename, game) VALUES (?, ?, ?, ?)",
+                "white", "black", "legacy", gson.toJson(json));
+
+        try (var conn = DatabaseManager.getConnection()) {
+            MySQLGameDAO.upgradeLegacyGames(conn);
+        }
+
+        var game = gameDataAccess.getGameById(gameId).game();
+        assertTrue(game.isResigned());
+        assertEquals(new ChessGame().getBoard(), game.getBoard());
+    }
+
+    @Test
+    @DisplayName("Duplicate Username Rejected")
+    public void testUniqueUsername() throws Exception {
+        var userDataAccess = new MySQLUserDAO();
+        userDataAccess.clearUsers();
+        userDataAccess.addUser(new UserData("username", "password", "email"), "hashedpassword");
+
+        assertThrows(DataAccessException.class, () ->
+                userDataAccess.addUser(new UserData("username", "password", "email"), "hashedpassword"));
+    }
+}
@@ -0,0 +1,149 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class FileStorageTests {
+    private static final int SNAPSHOT_INTERVAL = 4;
+
+    @TempDir
+    Path directory;
+
+    // Plays knights out and back so every move stays legal, logging each move
+    private ChessGame playMoves(FileGameDAO games, int count) throws Exception {
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < count; i++) {
+            int row = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? 1 : 8;
+            int toRow = game.getTeamTurn() == ChessGame.TeamColor.WHITE ? 3 : 6;
+            boolean out = game.getBoard().getPiece(new ChessPosition(row, 2)) != null;
+            var move = out ? new ChessMove(new ChessPosition(row, 2), new ChessPosition(toRow, 3), null)
+                    : new ChessMove(new ChessPosition(toRow, 3), new ChessPosition(row, 2), null);
+            game.makeMove(move);
+            games.addMove(1, move, game);
+        }
+        return game;
+    }
+
+    @Test
+    @DisplayName("Snapshot Interval Below One Rejected")
+    void testSnapshotIntervalRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new FileGameDAO(directory, 0));
+        assertThrows(IllegalArgumentException.class, () -> GameWrite.parseSnapshotInterval("-1"));
+        assertEquals(16, GameWrite.parseSnapshotInterval("16"));
+    }
+
+    @Test
+    @DisplayName("Users And Auths Survive Reopen")
+    void testUsersAndAuthsReopen() throws Exception {
+        try (var users = new FileUserDAO(directory); var auths = new FileAuthDAO(directory)) {
+            users.addUser(new UserData("username", "password", "email"), "hash");
+            auths.addAuthToken("username", "token1");
+            auths.addAuthToken("username", "token2");
+            auths.removeAuthorization("token1");
+            assertThrows(DataAccessException.class, () -> users.addUser(new UserData("username", "p", "e"), "h"));
+        }
+
+        try (var users = new FileUserDAO(directory); var auths = new FileAuthDAO(directory)) {
+            assertEquals(new UserData("username", "hash", "email"), users.getUser("username"));
+            assertNull(auths.getAuthInfoByToken("token1"));
+            assertEquals("token2", auths.getAuthInfoByUsername("username").authToken());
+            assertEquals(1, auths.getAllAuths().size());
+        }
+    }
+
+    @Test
+    @DisplayName("Long UTF-8 Usernames Survive Reopen")
+    void testLongUsernames() throws Exception {
+        String username = "é".repeat(256);
+        try (var users = new FileUserDAO(directory); var auths = new FileAuthDAO(directory);
+             var games = new FileGameDAO(directory, SNAPSHOT_INTERVAL)) {
+            users.addUser(new UserData(username, "password", "email"), "hash");
+            auths.addAuthToken(username, "token");
+            games.createNewGame("gameName");
+            games.addUserToGame(username, new JoinGameData("BLACK", 1));
+        }
+
+        try (var users = new FileUserDAO(directory); var auths = new FileAuthDAO(directory);
+             var games = new FileGameDAO(directory, SNAPSHOT_INTERVAL)) {
+            assertEquals(new UserData(username, "hash", "email"), users.getUser(username));
+            assertEquals(username, auths.getAuthInfoByToken("token").username());
+            assertEquals(username, games.getGameById(1).blackUsername());
+        }
+    }
+
+    @Test
+    @DisplayName("Games Rebuilt From Snapshot And Journal")
+    void testGamesReopen() throws Exception {
+        ChessGame expected;
+        try (var games = new FileGameDAO(directory, SNAPSHOT_INTERVAL)) {
+            games.createNewGame("gameName");
+            games.createNewGame("gameName1");
+            games.addUserToGame("testuser", new JoinGameData("WHITE", 1));
+            expected = playMoves(games, SNAPSHOT_INTERVAL + 2);
+            assertEquals(expected, games.getGameById(1).getGame());
+        }
+
+        try (var games = new FileGameDAO(directory, SNAPSHOT_INTERVAL)) {
+            GameData game = games.getGameByName("gameName");
+            assertEquals(expected, game.getGame());
+            assertEquals(SNAPSHOT_INTERVAL + 2, game.getGame().getPly());
+            assertEquals("testuser", game.whiteUsername());
+            assertEquals(2, games.listGames(0, 10, false).size());
+            assertThrows(DataAccessException.class, () -> games.createNewGame("gameName"));
+        }
+    }
+
+    @Test
+    @DisplayName("Torn Journal Tail Ignored")
+    void testTornJournal() throws Exception {
+        ChessGame expected;
+        try (var games = new FileGameDAO(directory, SNAPSHOT_INTERVAL)) {
+            games.createNewGame("gameName");
+            expected = playMoves(games, 3);
+        }
+        // An entry cut off part way through its write, so its checksum does not match
+        try (var channel = FileChannel.open(directory.resolve("moves.journal"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 1, 0, 0, 0, 4}), 3 * 16);
+        }
+
+        try (var games = new FileGameDAO(directory, SNAPSHOT_INTERVAL)) {
+            assertEquals(expected, games.getGameById(1).getGame());
+            ChessGame game = games.getGameById(1).getGame();
+            var move = new ChessMove(new ChessPosition(6, 3), new ChessPosition(8, 2), null);
+            game.makeMove(move);
+            games.addMove(1, move, game);
+            assertEquals(game, games.getGameById(1).getGame());
+        }
+    }
+
+    @Test
+    @DisplayName("Corrupt Snapshot Rebuilt From Journal")
+    void testCorruptSnapshot() throws Exception {
+        ChessGame expected;
+        try (var games = new FileGameDAO(directory, SNAPSHOT_INTERVAL)) {
+            games.createNewGame("gameName");
+            expected = playMoves(games, SNAPSHOT_INTERVAL + 1);
+        }
+        // Flip a byte inside the first game record's snapshot
+        try (var channel = FileChannel.open(directory.resolve("games.dat"), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, 400);
+            buffer.put(0, (byte) (buffer.get(0) ^ 0xFF));
+            channel.write(buffer.flip(), 400);
+        }
+
+        try (var games = new FileGameDAO(directory, SNAPSHOT_INTERVAL)) {
+            assertEquals(expected, games.getGameById(1).getGame());
+        }
+    }
+}
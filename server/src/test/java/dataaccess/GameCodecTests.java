@@ -0,0 +1,82 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Fen;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+public class GameCodecTests {
+    private static final String MIDDLEGAME = "r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2NBPN2/PP3PPP/R1BQ1RK1 b - - 0 9";
+
+    @Test
+    @DisplayName("Binary Start Position Is 26 Bytes")
+    public void testBinaryStartSize() {
+        assertEquals(26, GameCodec.BINARY.encode(new ChessGame()).length);
+    }
+
+    @Test
+    @DisplayName("Codecs Round Trip Positions")
+    public void testRoundTrip() throws Exception {
+        for (GameCodec codec : new GameCodec[]{GameCodec.BINARY, GameCodec.FEN}) {
+            ChessGame start = new ChessGame();
+            assertEquals(start, codec.decode(codec.encode(start)));
+
+            ChessGame middlegame = Fen.parse(MIDDLEGAME);
+            ChessGame decoded = codec.decode(codec.encode(middlegame));
+            assertEquals(middlegame, decoded);
+            assertEquals(ChessGame.TeamColor.BLACK, decoded.getTeamTurn());
+        }
+    }
+
+    @Test
+    @DisplayName("Legacy Resign Marker Encoded As Resigned")
+    public void testLegacyResign() throws Exception {
+        var gson = new Gson();
+        var json = gson.toJsonTree(new ChessGame()).getAsJsonObject();
+        json.remove("resigned");
+        JsonArray firstRow = json.getAsJsonObject("currentBoard").getAsJsonArray("board").get(0).getAsJsonArray();
+        firstRow.set(0, gson.toJsonTree(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN)));
+
+        ChessGame game = MySQLGameDAO.readLegacyGame(gson.toJson(json));
+        assertTrue(game.isResigned());
+        for (GameCodec codec : new GameCodec[]{GameCodec.BINARY, GameCodec.FEN}) {
+            assertTrue(codec.decode(codec.encode(game)).isResigned());
+        }
+        assertFalse(MySQLGameDAO.readLegacyGame(gson.toJson(new ChessGame())).isResigned());
+    }
+
+    @Test
+    @DisplayName("Codecs Keep Resigned Flag")
+    public void testResigned() throws Exception {
+        for (GameCodec codec : new GameCodec[]{GameCodec.BINARY, GameCodec.FEN}) {
+            ChessGame game = new ChessGame();
+            game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+            game.setResigned(true);
+
+            ChessGame decoded = GameCodec.decodeAny(codec.encode(game));
+            assertTrue(decoded.isResigned());
+            assertEquals(game, decoded);
+        }
+    }
+
+    @Test
+    @DisplayName("Corrupt Encodings Rejected")
+    public void testCorrupt() {
+        byte[] data = GameCodec.BINARY.encode(new ChessGame());
+
+        DataAccessException exception = assertThrows(DataAccessException.class,
+                () -> GameCodec.BINARY.decode(Arrays.copyOf(data, data.length - 1)));
+        assertEquals(500, exception.statusCode());
+
+        data[data.length - 1] = (byte) 0xFF;
+        assertThrows(DataAccessException.class, () -> GameCodec.BINARY.decode(data));
+        assertThrows(DataAccessException.class, () -> GameCodec.decodeAny(new byte[]{'X', 0}));
+    }
+}
@@ -1,6 +1,8 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
 import com.google.gson.Gson;
 import model.*;
 import org.junit.jupiter.api.*;
@@ -9,9 +11,7 @@ import service.UserService;
 
 import java.sql.ResultSet;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -61,7 +61,7 @@ public class GameDataAccessTests {
 
         assertEquals(500, exception.statusCode());
         assertEquals("unable to update database: INSERT INTO games (whiteusername, blackusername, " +
-                "gamename, game) VALUES (?, ?, ?, ?), Column 'gamename' cannot be null", exception.getMessage());
+                "gamename, state) VALUES (?, ?, ?, ?), Column 'gamename' cannot be null", exception.getMessage());
     }
 
     @Test
@@ -154,27 +154,51 @@ public class GameDataAccessTests {
 
         gameDataAccess.clearGames();
 
-        assertEquals(0, gameDataAccess.getAllGames().get("games").size());
+        assertEquals(0, gameDataAccess.listGames(0, 10, false).size());
     }
 
     @Test
-    @DisplayName("Test GetAllGames Success")
-    void testGetAllGamesSuccess() throws Exception {
+    @DisplayName("Test ListGames Success")
+    void testListGamesSuccess() throws Exception {
         gameDataAccess.createNewGame("gameName");
         gameDataAccess.createNewGame("gameName1");
         gameDataAccess.createNewGame("gameName2");
 
-        Map<String, List<Map<String, Object>>> games = gameDataAccess.getAllGames();
+        List<GameData> games = gameDataAccess.listGames(0, 10, false);
 
-        assertEquals(3, games.get("games").size());
-        assertEquals("gameName", games.get("games").get(0).get("gameName"));
-        assertEquals("gameName1", games.get("games").get(1).get("gameName"));
-        assertEquals("gameName2", games.get("games").get(2).get("gameName"));
+        assertEquals(3, games.size());
+        assertEquals("gameName", games.get(0).gameName());
+        assertEquals("gameName1", games.get(1).gameName());
+        assertEquals("gameName2", games.get(2).gameName());
     }
 
     @Test
-    @DisplayName("Test GetAllGames Failure")
-    void testGetAllGamesFailure() throws Exception {
+    @DisplayName("Test ListGames Pages And Open Filter")
+    void testListGames() throws Exception {
+        gameDataAccess.createNewGame("gameName");
+        gameDataAccess.createNewGame("gameName1");
+        gameDataAccess.createNewGame("gameName2");
+        int firstId = gameDataAccess.getGameByName("gameName").gameID();
+        gameDataAccess.addUserToGame("white", new JoinGameData("WHITE", firstId));
+        gameDataAccess.addUserToGame("black", new JoinGameData("BLACK", firstId));
+
+        List<GameData> page = gameDataAccess.listGames(0, 2, false);
+        assertEquals(2, page.size());
+        assertEquals("white", page.get(0).whiteUsername());
+        assertNull(page.get(0).game());
+        assertNull(page.get(1).whiteUsername());
+
+        List<GameData> rest = gameDataAccess.listGames(page.get(1).gameID(), 2, false);
+        assertEquals(1, rest.size());
+        assertEquals("gameName2", rest.get(0).gameName());
+
+        List<GameData> open = gameDataAccess.listGames(0, 10, true);
+        assertEquals(List.of("gameName1", "gameName2"), open.stream().map(GameData::gameName).toList());
+    }
+
+    @Test
+    @DisplayName("Test ListGames Failure")
+    void testListGamesFailure() throws Exception {
         gameDataAccess = new GameDataAccess() {
             @Override
             public void createNewGame(String gameName) throws Exception {
@@ -186,6 +210,11 @@ public class GameDataAccessTests {
 
             }
 
+            @Override
+            public void addMove(Integer gameId, ChessMove move, ChessGame game) throws Exception {
+
+            }
+
             @Override
             public GameData getGameByName(String gameName) throws Exception {
                 return null;
@@ -202,39 +231,39 @@ public class GameDataAccessTests {
             }
 
             @Override
-            public Map<String, List<Map<String, Object>>> getAllGames() throws Exception {
-                List<Map<String, Object>> gameList = new ArrayList<>();
+            public List<GameData> listGames(int afterId, int limit, boolean openOnly) throws Exception {
+                List<GameData> games = new ArrayList<>();
                 // Made invalid test query
-                var statement = "SELECT * FROM non_existent_table";
+                var statement = "SELECT gameid, whiteusername, blackusername, gamename FROM non_existent_table";
 
                 try (var conn = DatabaseManager.getConnection()) {
                     try (var ps = conn.prepareStatement(statement)) {
                         try (var rs = ps.executeQuery()) {
                             while (rs.next()) {
-                                GameData game = readTheGame(rs);
-                                Map<String, Object> gameMap = new HashMap<>();
-                                gameMap.put("gameID", game.getGameId());
-                                gameMap.put("whiteUsername", game.getWhiteUsername());
-                                gameMap.put("blackUsername", game.getBlackUsername());
-                                gameMap.put("gameName", game.getGameName());
-                                gameList.add(gameMap);
+                                games.add(GameData.summary(rs.getInt("gameid"), rs.getString("whiteusername"),
+                                        rs.getString("blackusername"), rs.getString("gamename")));
                             }
                         }
                     }
                 } catch (Exception e) {
                     throw new DataAccessException(500, e.getMessage());
                 }
-                return Map.of("games", gameList);
+                return games;
             }
 
             @Override
             public void addUserToGame(String username, JoinGameData gameData) throws Exception {
 
             }
+
+            @Override
+            public void flush() throws Exception {
+
+            }
         };
 
         Exception exception = assertThrows(DataAccessException.class, () -> {
-            gameDataAccess.getAllGames();
+            gameDataAccess.listGames(0, 10, false);
         });
 
         assertTrue(exception.getMessage().contains("non_existent_table"), "Expected SQL syntax error");
@@ -250,10 +279,10 @@ public class GameDataAccessTests {
         gameDataAccess.addUserToGame("testuser", new JoinGameData("WHITE", 1));
         gameDataAccess.addUserToGame("testuser2", new JoinGameData("BLACK", 2));
 
-        Map<String, List<Map<String, Object>>> games = gameDataAccess.getAllGames();
+        List<GameData> games = gameDataAccess.listGames(0, 10, false);
 
-        assertEquals("testuser", games.get("games").get(0).get("whiteUsername"));
-        assertEquals("testuser2", games.get("games").get(1).get("blackUsername"));
+        assertEquals("testuser", games.get(0).whiteUsername());
+        assertEquals("testuser2", games.get(1).blackUsername());
     }
 
     @Test
@@ -267,17 +296,80 @@ public class GameDataAccessTests {
         assertEquals("Color passed in is not white or black.", exception.getMessage());
     }
 
+    @Test
+    @DisplayName("Test AddMove Replays Logged Moves")
+    void testAddMoveReplay() throws Exception {
+        gameDataAccess.createNewGame("gameName");
+        ChessGame expected = new ChessGame();
+        playMove(1, expected, new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        playMove(1, expected, new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+
+        ChessGame game = gameDataAccess.getGameById(1).getGame();
+
+        assertEquals(expected, game);
+        assertEquals(2, game.getPly());
+        assertEquals(expected, gameDataAccess.getGameByName("gameName").getGame());
+    }
+
+    @Test
+    @DisplayName("Test AddMove Snapshots Game")
+    void testAddMoveSnapshot() throws Exception {
+        gameDataAccess.createNewGame("gameName");
+        ChessGame expected = new ChessGame();
+        int interval = DatabaseManager.getSnapshotInterval();
+        for (int i = 0; i <= interval; i++) {
+            // Knights hop out and back so every move stays legal
+            int row = expected.getTeamTurn() == ChessGame.TeamColor.WHITE ? 1 : 8;
+            int toRow = expected.getTeamTurn() == ChessGame.TeamColor.WHITE ? 3 : 6;
+            boolean out = expected.getBoard().getPiece(new ChessPosition(row, 2)) != null;
+            playMove(1, expected, out ? new ChessMove(new ChessPosition(row, 2), new ChessPosition(toRow, 3), null)
+                    : new ChessMove(new ChessPosition(toRow, 3), new ChessPosition(row, 2), null));
+        }
+        gameDataAccess.flush();
+
+        try (var conn = DatabaseManager.getConnection();
+             var ps = conn.prepareStatement("SELECT snapshotply FROM games WHERE gameid=1");
+             var rs = ps.executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals(interval, rs.getInt("snapshotply"));
+        }
+        ChessGame game = gameDataAccess.getGameById(1).getGame();
+        assertEquals(expected, game);
+        assertEquals(interval + 1, game.getPly());
+    }
+
+    @Test
+    @DisplayName("Test AddMove Failure Duplicate Ply")
+    void testAddMoveFailureDuplicatePly() throws Exception {
+        gameDataAccess.createNewGame("gameName");
+        ChessGame game = new ChessGame();
+        playMove(1, game, new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        DataAccessException exception = assertThrows(DataAccessException.class, () -> {
+            gameDataAccess.addMove(1, new ChessMove(new ChessPosition(2, 4), new ChessPosition(4, 4), null), game);
+            gameDataAccess.flush();
+        });
+
+        assertEquals(500, exception.statusCode());
+    }
+
 
     // ------ HELPER FUNCTIONS ------ //
 
+    // Make the move on the given game and log it
+    private void playMove(Integer gameId, ChessGame game, ChessMove move) throws Exception {
+        game.makeMove(move);
+        gameDataAccess.addMove(gameId, move, game);
+    }
+
     // Read game data from statement and pass back in GameData format
     private GameData readTheGame(ResultSet rs) throws Exception {
         int gameId = rs.getInt("gameid");
         String whiteUser = rs.getString("whiteusername");
         String blackUser = rs.getString("blackusername");
         String gameName = rs.getString("gamename");
-        String json = rs.getString("game");
-        var game = new Gson().fromJson(json, ChessGame.class);
+        byte[] state = rs.getBytes("state");
+        var game = state != null ? GameCodec.decodeAny(state) : new Gson().fromJson(rs.getString("game"), ChessGame.class);
         return new GameData(gameId, whiteUser, blackUser, gameName, game);
     }
 }
\ No newline at end of file
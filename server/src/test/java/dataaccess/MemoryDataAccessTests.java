@@ -0,0 +1,136 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.*;
+import org.junit.jupiter.api.*;
+import service.GameService;
+import service.ServiceException;
+import service.UserService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryDataAccessTests {
+    private MemoryUserDAO userDataAccess;
+    private MemoryAuthDAO authDataAccess;
+    private MemoryGameDAO gameDataAccess;
+
+    @BeforeEach
+    void setup() {
+        userDataAccess = new MemoryUserDAO();
+        authDataAccess = new MemoryAuthDAO();
+        gameDataAccess = new MemoryGameDAO();
+    }
+
+    @Test
+    @DisplayName("Duplicate User Rejected")
+    void testDuplicateUser() throws Exception {
+        userDataAccess.addUser(new UserData("username", "password", "email"), "hash");
+
+        DataAccessException exception = assertThrows(DataAccessException.class, () -> {
+            userDataAccess.addUser(new UserData("username", "other", "email"), "hash2");
+        });
+
+        assertEquals(500, exception.statusCode());
+        assertEquals("hash", userDataAccess.getUser("username").password());
+        assertNull(userDataAccess.getUser(null));
+    }
+
+    @Test
+    @DisplayName("Auth Lookup By Username After Logout")
+    void testAuthByUsername() throws Exception {
+        authDataAccess.addAuthToken("username", "token1");
+        authDataAccess.addAuthToken("username", "token2");
+
+        assertEquals("token1", authDataAccess.getAuthInfoByUsername("username").authToken());
+        authDataAccess.removeAuthorization("token1");
+
+        assertNull(authDataAccess.getAuthInfoByToken("token1"));
+        assertEquals("token2", authDataAccess.getAuthInfoByUsername("username").authToken());
+        assertEquals(1, authDataAccess.getAllAuths().size());
+    }
+
+    @Test
+    @DisplayName("Stored Game Not Changed By Reader")
+    void testGameCopy() throws Exception {
+        gameDataAccess.createNewGame("gameName");
+        GameData game = gameDataAccess.getGameById(1);
+        var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.getGame().makeMove(move);
+
+        assertEquals(new ChessGame(), gameDataAccess.getGameById(1).getGame());
+
+        gameDataAccess.addMove(1, move, game.getGame());
+        ChessGame stored = gameDataAccess.getGameById(1).getGame();
+        assertEquals(game.getGame(), stored);
+        assertEquals(1, stored.getPly());
+    }
+
+    @Test
+    @DisplayName("Games Listed In Creation Order")
+    void testListGames() throws Exception {
+        gameDataAccess.createNewGame("gameName");
+        gameDataAccess.createNewGame("gameName1");
+        gameDataAccess.addUserToGame("testuser", new JoinGameData("BLACK", 2));
+
+        var games = gameDataAccess.listGames(0, 10, false);
+
+        assertEquals(2, games.size());
+        assertEquals("gameName", games.get(0).gameName());
+        assertNull(games.get(0).whiteUsername());
+        assertEquals("testuser", games.get(1).blackUsername());
+        assertThrows(DataAccessException.class, () -> gameDataAccess.createNewGame("gameName"));
+
+        gameDataAccess.clearGames();
+        gameDataAccess.createNewGame("gameName");
+        assertEquals(1, gameDataAccess.getGameByName("gameName").gameID());
+    }
+
+    @Test
+    @DisplayName("Game Listing Paged By Id")
+    void testListGamesPaging() throws Exception {
+        var userService = new UserService(userDataAccess, authDataAccess);
+        var gameService = new GameService(userService, gameDataAccess);
+        AuthData auth = userService.registerUser(new UserData("username", "password", "email@email.com"));
+        for (int i = 1; i <= 5; i++) {
+            gameDataAccess.createNewGame("game" + i);
+        }
+        gameDataAccess.addUserToGame("username", new JoinGameData("WHITE", 2));
+        gameDataAccess.addUserToGame("username", new JoinGameData("BLACK", 2));
+
+        var first = gameService.listGames(auth.authToken(), null, 2, false);
+        assertEquals(2, first.get("next"));
+        var last = gameService.listGames(auth.authToken(), 4, 2, false);
+        assertFalse(last.containsKey("next"));
+        assertEquals(List.of(5), ((List<?>) last.get("games")).stream().map(game -> ((GameData) game).gameID()).toList());
+
+        var open = gameDataAccess.listGames(0, 10, true);
+        assertEquals(List.of(1, 3, 4, 5), open.stream().map(GameData::gameID).toList());
+        assertNull(open.get(0).game());
+
+        ServiceException exception = assertThrows(ServiceException.class, () -> {
+            gameService.listGames(auth.authToken(), null, GameService.MAX_PAGE_SIZE + 1, false);
+        });
+        assertEquals(400, exception.statusCode());
+    }
+
+    @Test
+    @DisplayName("Services Run On Injected Memory DAOs")
+    void testServicesOnMemory() throws Exception {
+        var userService = new UserService(userDataAccess, authDataAccess);
+        var gameService = new GameService(userService, gameDataAccess);
+
+        AuthData auth = userService.registerUser(new UserData("username", "password", "email@email.com"));
+        gameService.createGame(new GameData(0, null, null, "newGame", null), auth.authToken());
+        gameService.joinGame(auth.authToken(), new JoinGameData("WHITE", 1));
+
+        assertEquals("username", gameDataAccess.getGameById(1).whiteUsername());
+        ServiceException exception = assertThrows(ServiceException.class, () -> {
+            gameService.joinGame(auth.authToken(), new JoinGameData("WHITE", 1));
+        });
+        assertEquals(403, exception.statusCode());
+    }
+}
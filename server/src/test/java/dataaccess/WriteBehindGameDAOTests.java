@@ -0,0 +1,211 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.PackedMove;
+import model.GameData;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WriteBehindGameDAOTests {
+    private static final ChessMove KNIGHT_OUT = new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null);
+
+    private final List<List<GameWrite>> batches = new CopyOnWriteArrayList<>();
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final AtomicInteger reads = new AtomicInteger();
+
+    private void write(List<GameWrite> writes) throws DataAccessException {
+        if (failuresLeft.getAndDecrement() > 0) {
+            throw new DataAccessException(500, "database unavailable");
+        }
+        batches.add(List.copyOf(writes));
+    }
+
+    // Stands in for the MySQL DAO, recording the order reads happen in relative to batches
+    private GameDataAccess fakeDelegate() {
+        return (GameDataAccess) Proxy.newProxyInstance(GameDataAccess.class.getClassLoader(), new Class<?>[]{GameDataAccess.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getGameById")) {
+                        reads.incrementAndGet();
+                        assertFalse(batches.isEmpty(), "Read before queued writes were flushed");
+                    }
+                    return null;
+                });
+    }
+
+    private WriteBehindGameDAO writeBehind(int batchSize, long flushMillis) {
+        return new WriteBehindGameDAO(fakeDelegate(), this::write, GameCodec.BINARY, 4,
+                new WriteBehindGameDAO.Settings(16, batchSize, flushMillis));
+    }
+
+    // Rebuilds a game from the batches written, replaying logged moves over the snapshot like MySQLGameDAO
+    private ChessGame reload(int gameId) throws Exception {
+        ChessGame game = new ChessGame();
+        int snapshotPly = 0;
+        var moves = new TreeMap<Integer, Integer>();
+        for (var batch : batches) {
+            for (var write : batch) {
+                if (write.gameId() != gameId) {
+                    continue;
+                }
+                for (var move : write.moves()) {
+                    moves.put(move.ply(), move.move());
+                }
+                if (write.snapshot() != null) {
+                    game = GameCodec.BINARY.decode(write.snapshot());
+                    snapshotPly = write.snapshotPly();
+                }
+            }
+        }
+        game.setPly(snapshotPly);
+        for (var move : moves.tailMap(snapshotPly, false).entrySet()) {
+            assertEquals(game.getPly() + 1, move.getKey(), "Gap in the logged moves");
+            game.makeMove(PackedMove.toChessMove(move.getValue()));
+        }
+        return game;
+    }
+
+    private static long flusherThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("game-write-behind"))
+                .count();
+    }
+
+    private ChessGame movedGame() throws Exception {
+        var game = new ChessGame();
+        game.makeMove(KNIGHT_OUT);
+        return game;
+    }
+
+    @Test
+    @DisplayName("Updates To One Game Coalesce")
+    public void testCoalesce() throws Exception {
+        var dao = writeBehind(100, 60000);
+        var game = movedGame();
+
+        dao.addMove(1, KNIGHT_OUT, game);
+        dao.setGameById(1, new GameData(1, "", "", "game", game));
+        dao.addMove(2, KNIGHT_OUT, game);
+        dao.flush();
+
+        assertEquals(1, batches.size());
+        var batch = batches.get(0);
+        assertEquals(2, batch.size());
+        assertEquals(1, batch.get(0).moves().size());
+        assertNotNull(batch.get(0).snapshot());
+        assertNull(batch.get(1).snapshot());
+        assertEquals(1, dao.metrics().coalesced());
+    }
+
+    @Test
+    @DisplayName("Batch Size Triggers Flush")
+    public void testBatchSizeTrigger() throws Exception {
+        var dao = writeBehind(2, 60000);
+        var game = movedGame();
+
+        dao.addMove(1, KNIGHT_OUT, game);
+        dao.addMove(2, KNIGHT_OUT, game);
+
+        long deadline = System.currentTimeMillis() + 2000;
+        while (batches.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, batches.size());
+        assertEquals(0, dao.metrics().pendingGames());
+    }
+
+    @Test
+    @DisplayName("Read Flushes Only That Game's Queued Writes")
+    public void testReadFlushes() throws Exception {
+        var dao = writeBehind(100, 60000);
+
+        dao.addMove(1, KNIGHT_OUT, movedGame());
+        dao.addMove(2, KNIGHT_OUT, movedGame());
+        dao.getGameById(1);
+
+        assertEquals(1, reads.get());
+        assertEquals(1, batches.size());
+        assertEquals(1, batches.get(0).get(0).gameId());
+        assertEquals(1, dao.metrics().pendingGames());
+
+        // A read that cannot write the game's queued moves fails instead of returning an older copy
+        dao.addMove(1, KNIGHT_OUT, movedGame());
+        failuresLeft.set(1);
+        assertThrows(DataAccessException.class, () -> dao.getGameById(1));
+        assertEquals(1, reads.get());
+        assertEquals(2, dao.metrics().pendingGames());
+    }
+
+    @Test
+    @DisplayName("Close Stops The Flusher And Writes Everything")
+    public void testClose() throws Exception {
+        var dao = writeBehind(100, 60000);
+        dao.addMove(1, KNIGHT_OUT, movedGame());
+        long flushers = flusherThreads();
+
+        dao.close();
+
+        assertEquals(flushers - 1, flusherThreads());
+        assertEquals(0, dao.metrics().pendingGames());
+        assertEquals(1, batches.size());
+        assertThrows(DataAccessException.class, () -> dao.addMove(1, KNIGHT_OUT, movedGame()));
+    }
+
+    @Test
+    @DisplayName("Failed Write Retried And Kept Queued")
+    public void testFailedWrite() throws Exception {
+        var dao = writeBehind(100, 60000);
+        dao.addMove(1, KNIGHT_OUT, movedGame());
+
+        failuresLeft.set(2);
+        dao.flush();
+        assertEquals(1, batches.size());
+
+        dao.addMove(1, KNIGHT_OUT, movedGame());
+        failuresLeft.set(100);
+        DataAccessException exception = assertThrows(DataAccessException.class, dao::flush);
+        assertEquals(500, exception.statusCode());
+        assertEquals(1, dao.metrics().replaced());
+        assertEquals(1, dao.metrics().pendingGames());
+
+        failuresLeft.set(0);
+        dao.flush();
+        assertEquals(0, dao.metrics().pendingGames());
+        assertNotNull(batches.get(batches.size() - 1).get(0).snapshot());
+    }
+
+    @Test
+    @DisplayName("Moves That Keep Failing Reload From Snapshot")
+    public void testFailedMovesReload() throws Exception {
+        var dao = writeBehind(100, 60000);
+        var game = new ChessGame();
+        var moves = List.of(KNIGHT_OUT,
+                new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null),
+                new ChessMove(new ChessPosition(3, 3), new ChessPosition(1, 2), null));
+
+        game.makeMove(moves.get(0));
+        dao.addMove(1, moves.get(0), game);
+        dao.flush();
+
+        // Each round fails the batch and the single retry, so the moves fall back to a snapshot on the third
+        failuresLeft.set(2 * 3);
+        for (var move : moves.subList(1, 3)) {
+            game.makeMove(move);
+            dao.addMove(1, move, game);
+        }
+        assertThrows(DataAccessException.class, dao::flush);
+
+        assertEquals(1, dao.metrics().replaced());
+        assertEquals(0, dao.metrics().pendingGames());
+        var reloaded = reload(1);
+        assertEquals(game, reloaded);
+        assertEquals(3, reloaded.getPly());
+    }
+}
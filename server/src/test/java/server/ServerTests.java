@@ -0,0 +1,34 @@
+package server;
+
+import dataaccess.DatabaseManager;
+import dataaccess.MySQLUserDAO;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServerTests {
+
+    @Test
+    @DisplayName("Restarted Server Reuses Connections")
+    public void testRestartReusesConnections() throws Exception {
+        var first = new Server();
+        first.run(0);
+        first.stop();
+
+        var second = new Server();
+        second.run(0);
+        try {
+            var users = new MySQLUserDAO();
+            users.clearUsers();
+            long created = DatabaseManager.getPoolMetrics().created();
+            users.clearUsers();
+            users.clearUsers();
+
+            var metrics = DatabaseManager.getPoolMetrics();
+            assertEquals(created, metrics.created());
+            assertTrue(metrics.idle() > 0);
+        } finally {
+            second.stop();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import model.GameData;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.*;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveAppliedMessage;
+import websocket.messages.NotificationMessage;
+import websocket.messages.ServerMessage;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionManagerTests {
+    private ConnectionManager connections;
+
+    @BeforeEach
+    void setup() {
+        connections = new ConnectionManager();
+    }
+
+    // A session that is always open and never sent to
+    private static Session openSession() {
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> true;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+
+    // A client whose writes only finish when the test completes them
+    private static class SlowClient {
+        final List<String> written = new ArrayList<>();
+        final List<WriteCallback> pending = new ArrayList<>();
+        boolean closed;
+        final Session session;
+
+        SlowClient() {
+            var remote = (RemoteEndpoint) Proxy.newProxyInstance(RemoteEndpoint.class.getClassLoader(),
+                    new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("sendString") && args.length == 2) {
+                            written.add((String) args[0]);
+                            pending.add((WriteCallback) args[1]);
+                        }
+                        return null;
+                    });
+            session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{Session.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "isOpen" -> !closed;
+                        case "getRemote" -> remote;
+                        case "close" -> {
+                            closed = true;
+                            yield null;
+                        }
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> null;
+                    });
+        }
+
+        // Finishes the oldest write, which starts the next queued one
+        void finishWrite() {
+            pending.removeFirst().writeSuccess();
+        }
+    }
+
+    private static LoadGameMessage board() {
+        return new LoadGameMessage(new GameData(1, "white", "black", "game", new ChessGame()));
+    }
+
+    @Test
+    @DisplayName("Outbound Settings Parsed And Validated")
+    void testSettingsParsed() {
+        assertEquals(new ConnectionManager.Settings(8, ConnectionManager.OverflowPolicy.DISCONNECT),
+                ConnectionManager.Settings.parse(" 8", "Disconnect "));
+        var policy = assertThrows(IllegalArgumentException.class, () -> ConnectionManager.Settings.parse("8", "block"));
+        assertTrue(policy.getMessage().contains("ws.outbound.overflow"));
+        var size = assertThrows(IllegalArgumentException.class, () -> ConnectionManager.Settings.parse("many", "disconnect"));
+        assertTrue(size.getMessage().contains("ws.outbound.queueSize"));
+        assertThrows(IllegalArgumentException.class, () -> ConnectionManager.Settings.parse("0", "disconnect"));
+        assertEquals(ConnectionManager.OverflowPolicy.DROP_OLDEST, ConnectionManager.Settings.configured().overflowPolicy());
+    }
+
+    @Test
+    @DisplayName("Slow Client Only Backs Up Its Own Queue")
+    void testSlowClientQueue() {
+        var manager = new ConnectionManager(new ConnectionManager.Settings(2, ConnectionManager.OverflowPolicy.DROP_OLDEST));
+        var slow = new SlowClient();
+        var fast = new SlowClient();
+        manager.add(1, "slow", slow.session);
+        manager.add(1, "fast", fast.session);
+
+        manager.broadcast(1, new NotificationMessage("first"), null);
+        manager.broadcast(1, new NotificationMessage("second"), null);
+        manager.broadcast(1, new NotificationMessage("third"), null);
+        fast.finishWrite();
+        fast.finishWrite();
+        // The fourth notification drops "second", the oldest one still queued behind the write in flight
+        manager.broadcast(1, new NotificationMessage("fourth"), null);
+        fast.finishWrite();
+        fast.finishWrite();
+
+        assertEquals(4, fast.written.size());
+        assertEquals(1, slow.written.size());
+        assertEquals(2, manager.metrics().queuedMessages());
+        assertEquals(1, manager.metrics().dropped());
+
+        slow.finishWrite();
+        slow.finishWrite();
+        slow.finishWrite();
+        assertEquals(3, slow.written.size());
+        assertTrue(slow.written.get(1).contains("third"));
+        assertTrue(slow.written.get(2).contains("fourth"));
+        assertEquals(0, manager.metrics().queuedMessages());
+    }
+
+    @Test
+    @DisplayName("Full Queue Coalesces Boards Or Disconnects")
+    void testOverflowPolicies() {
+        var manager = new ConnectionManager(new ConnectionManager.Settings(1, ConnectionManager.OverflowPolicy.DISCONNECT));
+        var slow = new SlowClient();
+        manager.add(1, "slow", slow.session);
+
+        manager.broadcastGame(board(), 1);
+        manager.broadcastGame(board(), 1);
+        manager.broadcastGame(board(), 1);
+        assertEquals(1, manager.metrics().coalesced());
+        assertFalse(slow.closed);
+
+        manager.broadcast(1, new NotificationMessage("note"), null);
+        assertTrue(slow.closed);
+        assertEquals(1, manager.metrics().disconnected());
+
+        // Nothing more is written once the connection gave up on the client
+        slow.finishWrite();
+        assertEquals(1, slow.written.size());
+    }
+
+    @Test
+    @DisplayName("Moves Sent As Deltas Only To Connections That Asked")
+    void testBroadcastMove() throws Exception {
+        var manager = new ConnectionManager(new ConnectionManager.Settings(4, ConnectionManager.OverflowPolicy.DROP_OLDEST));
+        var deltas = new SlowClient();
+        var boards = new SlowClient();
+        manager.add(1, "deltas", deltas.session, true);
+        manager.add(1, "boards", boards.session);
+
+        var game = new ChessGame();
+        var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(move);
+        manager.broadcastMove(1, new LoadGameMessage(new GameData(1, "white", "black", "game", game)),
+                new MoveAppliedMessage(move, game.getPly(), game.evaluateStatus(), game.positionKey()));
+
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(ServerMessage.class, new ServerMessage.ServerMessageDeserializer())
+                .create();
+        var applied = (MoveAppliedMessage) gson.fromJson(deltas.written.getFirst(), ServerMessage.class);
+        assertEquals(move, applied.getMove());
+        assertEquals(1, applied.getPly());
+        assertEquals(game.positionKey(), applied.getPositionKey());
+        assertInstanceOf(LoadGameMessage.class, gson.fromJson(boards.written.getFirst(), ServerMessage.class));
+
+        var replayed = new ChessGame();
+        replayed.makeMove(applied.getMove());
+        assertEquals(applied.getPositionKey(), replayed.positionKey());
+    }
+
+    @Test
+    @DisplayName("Queued Moves Only Dropped When A Board Covers Them")
+    void testMovesKept() throws Exception {
+        var manager = new ConnectionManager(new ConnectionManager.Settings(2, ConnectionManager.OverflowPolicy.DROP_OLDEST));
+        var slow = new SlowClient();
+        manager.add(1, "slow", slow.session, true);
+
+        var game = new ChessGame();
+        var moves = List.of(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null),
+                new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null),
+                new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+        for (var move : moves) {
+            game.makeMove(move);
+            manager.broadcastMove(1, new LoadGameMessage(new GameData(1, "white", "black", "game", game)),
+                    new MoveAppliedMessage(move, game.getPly(), game.evaluateStatus(), game.positionKey()));
+        }
+
+        // Both queued moves are still needed, so the notification cannot make room for itself
+        manager.broadcast(1, new NotificationMessage("note"), null);
+        assertTrue(slow.closed);
+        assertEquals(0, manager.metrics().dropped());
+
+        var resyncing = new SlowClient();
+        manager.add(1, "resyncing", resyncing.session, true);
+        manager.broadcast(1, new NotificationMessage("first"), null);
+        manager.broadcastMove(1, board(), new MoveAppliedMessage(moves.get(0), 1, game.evaluateStatus(), 0));
+        manager.broadcastGame(board(), 1);
+        // The queued move is covered by the board queued after it
+        manager.broadcast(1, new NotificationMessage("second"), null);
+        assertFalse(resyncing.closed);
+        assertEquals(1, manager.metrics().dropped());
+
+        resyncing.finishWrite();
+        resyncing.finishWrite();
+        resyncing.finishWrite();
+        assertEquals(3, resyncing.written.size());
+        assertTrue(resyncing.written.get(1).contains("LOAD_GAME"));
+        assertTrue(resyncing.written.get(2).contains("second"));
+    }
+
+    @Test
+    @DisplayName("Games Indexed As Connections Come And Go")
+    void testGameIndex() {
+        var session = openSession();
+        connections.add(1, "token1", session);
+        connections.add(2, "token2", openSession());
+
+        assertTrue(connections.hasConnections(1));
+        assertTrue(connections.hasConnections(2));
+
+        connections.remove("token1");
+        assertFalse(connections.hasConnections(1));
+        assertTrue(connections.hasConnections(2));
+        assertNull(connections.connections.get("token1"));
+    }
+
+    @Test
+    @DisplayName("Reconnecting Token Moves Games")
+    void testReconnect() {
+        var session = openSession();
+        connections.add(1, "token", session);
+        connections.add(2, "token", session);
+
+        assertFalse(connections.hasConnections(1));
+        assertTrue(connections.hasConnections(2));
+        assertEquals(Set.of(2), connections.removeSession(session));
+        assertFalse(connections.hasConnections(2));
+    }
+
+    @Test
+    @DisplayName("Closed Session Removes Only Its Connections")
+    void testRemoveSession() {
+        var closed = openSession();
+        var other = openSession();
+        connections.add(1, "token1", closed);
+        connections.add(2, "token2", closed);
+        connections.add(2, "token3", other);
+        connections.add(null, "token4", closed);
+
+        assertEquals(Set.of(1, 2), connections.removeSession(closed));
+        assertFalse(connections.hasConnections(1));
+        assertTrue(connections.hasConnections(2));
+        assertEquals(Set.of("token3"), connections.connections.keySet());
+        assertEquals(Set.of(), connections.removeSession(closed));
+    }
+}
@@ -0,0 +1,112 @@
+package server.websocket;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameMailboxesTests {
+    private GameMailboxes mailboxes;
+
+    @BeforeEach
+    void setup() {
+        mailboxes = new GameMailboxes();
+    }
+
+    @AfterEach
+    void tearDown() {
+        mailboxes.close();
+    }
+
+    @Test
+    @DisplayName("Commands For One Game Run In Order One At A Time")
+    void testSerialPerGame() throws Exception {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        int commands = 500;
+        CountDownLatch done = new CountDownLatch(commands);
+
+        for (int i = 0; i < commands; i++) {
+            int command = i;
+            mailboxes.submit(1, () -> {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                order.add(command);
+                running.decrementAndGet();
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+        for (int i = 0; i < commands; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Different Games Run In Parallel")
+    void testParallelGames() throws Exception {
+        // Game 1's command waits for game 2's, which could never run if games shared a thread
+        CountDownLatch gameTwoRan = new CountDownLatch(1);
+        CountDownLatch gameOneDone = new CountDownLatch(1);
+        mailboxes.submit(1, () -> {
+            try {
+                if (gameTwoRan.await(10, TimeUnit.SECONDS)) {
+                    gameOneDone.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        mailboxes.submit(2, gameTwoRan::countDown);
+
+        assertTrue(gameOneDone.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Idle Mailboxes Removed And Failures Contained")
+    void testIdleMailboxRemoved() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        mailboxes.submit(1, () -> {
+            throw new IllegalStateException("command failed");
+        });
+        mailboxes.submit(1, () -> {
+            throw new AssertionError("command failed");
+        });
+        mailboxes.submit(1, done::countDown);
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        mailboxes.close();
+        assertEquals(0, mailboxes.activeGames());
+    }
+
+    @Test
+    @DisplayName("Commands After Close Dropped")
+    void testSubmitAfterClose() {
+        AtomicInteger ran = new AtomicInteger();
+        mailboxes.close();
+
+        mailboxes.submit(1, ran::incrementAndGet);
+
+        assertEquals(0, ran.get());
+        assertEquals(0, mailboxes.activeGames());
+
+        // An executor that already refuses work leaves no mailbox behind
+        var executor = Executors.newVirtualThreadPerTaskExecutor();
+        executor.close();
+        var rejecting = new GameMailboxes(executor);
+        rejecting.submit(1, ran::incrementAndGet);
+        assertEquals(0, ran.get());
+        assertEquals(0, rejecting.activeGames());
+    }
+}
@@ -0,0 +1,48 @@
+package server.websocket;
+
+import chess.ChessMove;
+import chess.ChessPosition;
+import com.google.gson.Gson;
+import dataaccess.MemoryAuthDAO;
+import dataaccess.MemoryGameDAO;
+import dataaccess.MemoryUserDAO;
+import model.UserData;
+import org.junit.jupiter.api.*;
+import service.ActiveGameRegistry;
+import service.GameService;
+import service.UserService;
+import websocket.commands.MakeMoveCommand;
+import websocket.commands.UserGameCommand;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebSocketHandlerTests {
+    private static final Gson GSON = new Gson();
+
+    private WebSocketHandler handler;
+    private ActiveGameRegistry activeGames;
+    private String token;
+
+    @BeforeEach
+    void setup() throws Exception {
+        var userService = new UserService(new MemoryUserDAO(), new MemoryAuthDAO());
+        var gameService = new GameService(userService, new MemoryGameDAO());
+        handler = new WebSocketHandler(userService, gameService);
+        activeGames = gameService.getActiveGames();
+
+        token = userService.registerUser(new UserData("username", "password", "email")).authToken();
+        gameService.getGameDataAccess().createNewGame("gameName");
+    }
+
+    @Test
+    @DisplayName("Commands Without A Connection Do Not Keep The Game Loaded")
+    void testCommandsWithoutConnectRelease() throws Exception {
+        var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        handler.onMessage(null, GSON.toJson(new MakeMoveCommand(token, 1, move)));
+        handler.onMessage(null, GSON.toJson(new UserGameCommand(UserGameCommand.CommandType.RESIGN, token, 1)));
+        handler.onMessage(null, GSON.toJson(new UserGameCommand(UserGameCommand.CommandType.RESYNC, token, 1)));
+        handler.shutdown();
+
+        assertFalse(activeGames.isActive(1));
+    }
+}
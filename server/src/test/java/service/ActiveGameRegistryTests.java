@@ -0,0 +1,118 @@
+package service;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.*;
+import dataaccess.*;
+import org.junit.jupiter.api.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ActiveGameRegistryTests {
+    private UserService userService;
+    private GameService gameService;
+    private GameDataAccess gameDataAccess;
+    private ActiveGameRegistry activeGames;
+
+    @BeforeEach
+    void setup() throws Exception {
+        userService = new UserService();
+        gameService = new GameService(userService);
+        gameDataAccess = gameService.getGameDataAccess();
+        activeGames = gameService.getActiveGames();
+
+        gameService.clearDatabase();
+    }
+
+    @Test
+    @DisplayName("Get Game Loads Once")
+    public void testGetGameLoadsOnce() throws Exception {
+        gameDataAccess.createNewGame("newGame");
+
+        GameData game = activeGames.getGame(1);
+        assertNotNull(game);
+        assertTrue(activeGames.isActive(1));
+        assertSame(game, activeGames.getGame(1));
+    }
+
+    @Test
+    @DisplayName("Get Game Bad ID")
+    public void testGetGameBadId() throws Exception {
+        assertNull(activeGames.getGame(1));
+        assertFalse(activeGames.isActive(1));
+    }
+
+    @Test
+    @DisplayName("Update Game Saves Move")
+    public void testUpdateGame() throws Exception {
+        gameDataAccess.createNewGame("newGame");
+        GameData game = activeGames.getGame(1);
+        game.getGame().makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+
+        activeGames.updateGame(game);
+
+        assertEquals(ChessGame.TeamColor.BLACK, gameDataAccess.getGameById(1).getGame().getTeamTurn());
+        assertSame(game.getGame(), activeGames.getGame(1).getGame());
+    }
+
+    @Test
+    @DisplayName("Join Game Updates Live Game")
+    public void testJoinGameUpdatesLiveGame() throws Exception {
+        AuthData auth = userService.registerUser(new UserData("username", "password", "email@email.com"));
+        gameDataAccess.createNewGame("newGame");
+        activeGames.getGame(1);
+
+        gameService.joinGame(auth.authToken(), new JoinGameData("WHITE", 1));
+
+        assertEquals("username", activeGames.getGame(1).whiteUsername());
+        assertEquals("username", gameDataAccess.getGameById(1).whiteUsername());
+    }
+
+    @Test
+    @DisplayName("Release Drops Live Game")
+    public void testRelease() throws Exception {
+        gameDataAccess.createNewGame("newGame");
+        GameData game = activeGames.getGame(1);
+
+        activeGames.release(1);
+
+        assertFalse(activeGames.isActive(1));
+        assertNotSame(game, activeGames.getGame(1));
+    }
+
+    @Test
+    @DisplayName("Move Keeps Player Who Joined After Read")
+    public void testRecordMoveKeepsPlayers() throws Exception {
+        gameDataAccess.createNewGame("newGame");
+        GameData game = activeGames.getGame(1);
+        activeGames.setPlayer("black", new JoinGameData("BLACK", 1));
+
+        var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.getGame().makeMove(move);
+        activeGames.recordMove(game, move);
+
+        assertEquals("black", activeGames.getGame(1).blackUsername());
+        assertEquals(ChessGame.TeamColor.BLACK, activeGames.getGame(1).getGame().getTeamTurn());
+    }
+
+    @Test
+    @DisplayName("Failed Write Drops Unsaved Change")
+    public void testFailedWriteReloads() throws Exception {
+        var failing = new MemoryGameDAO() {
+            @Override
+            public void addMove(Integer gameId, ChessMove move, ChessGame game) {
+                throw new IllegalStateException("write failed");
+            }
+        };
+        var registry = new ActiveGameRegistry(failing);
+        failing.createNewGame("newGame");
+        GameData game = registry.getGame(1);
+
+        var move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.getGame().makeMove(move);
+        assertThrows(IllegalStateException.class, () -> registry.recordMove(game, move));
+
+        assertFalse(registry.isActive(1));
+        assertEquals(new ChessGame(), registry.getGame(1).getGame());
+    }
+}
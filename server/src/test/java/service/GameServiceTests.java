@@ -7,7 +7,6 @@ import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
 public class GameServiceTests {
     private UserService userService;
@@ -37,20 +36,20 @@ public class GameServiceTests {
         GameData game = gameService.createGame(newGame, auth.authToken());
         assertNotNull(game);
 
-        Map<String, List<Map<String, Object>>> allGames = gameDataAccess.getAllGames();
-        Map<String, Object> gameMap = allGames.get("games").getFirst();
+        List<GameData> allGames = listGames();
+        GameData listed = allGames.getFirst();
 
-        assertEquals(1, allGames.get("games").size());
-        assertEquals(1, gameMap.get("gameID"));
-        assertEquals("newGame", gameMap.get("gameName"));
-        assertNull(gameMap.get("whiteUsername"));
-        assertNull(gameMap.get("blackUsername"));
-        assertNotNull(gameMap.get("gameID"));
+        assertEquals(1, allGames.size());
+        assertEquals(1, listed.gameID());
+        assertEquals("newGame", listed.gameName());
+        assertNull(listed.whiteUsername());
+        assertNull(listed.blackUsername());
+        assertNotNull(listed.gameID());
 
-        assertEquals(game.gameName(), gameMap.get("gameName"));
-        assertEquals(game.gameID(), gameMap.get("gameID"));
-        assertNull(gameMap.get("whiteUsername"));
-        assertNull(gameMap.get("blackUsername"));
+        assertEquals(game.gameName(), listed.gameName());
+        assertEquals(game.gameID(), listed.gameID());
+        assertNull(listed.whiteUsername());
+        assertNull(listed.blackUsername());
 
     }
 
@@ -123,65 +122,65 @@ public class GameServiceTests {
         gameService.createGame(new GameData(0, null, null, "newGame4", new ChessGame()), auth.authToken());
 
 
-        assertEquals(5, getAllGames().get("games").size());
+        assertEquals(5, listGames().size());
 
         gameService.clearDatabase();
 
         assertEquals(0, getAllUsers().size());
         assertEquals(0, getAllAuths().size());
-        assertEquals(0, getAllGames().get("games").size());
+        assertEquals(0, listGames().size());
     }
 
     @Test
-    @DisplayName("Get All Games Success")
-    public void testGetAllGames() throws Exception {
+    @DisplayName("List Games Success")
+    public void testListGames() throws Exception {
         UserData newUser = new UserData("username", "password", "email@email.com");
         AuthData auth = userService.registerUser(newUser);
 
         setupGames(auth);
 
-        List<Map<String, Object>> games = gameService.getAllGames(auth.authToken()).get("games");
+        List<GameData> games = listGames(auth.authToken());
 
         assertEquals(5, games.size());
 
-        assertEquals(1, games.getFirst().get("gameID"));
-        assertEquals("newGame", games.getFirst().get("gameName"));
-        assertNull(games.get(0).get("blackUsername"));
-        assertEquals("username", games.getFirst().get("whiteUsername"));
-
-        assertEquals(2, games.get(1).get("gameID"));
-        assertEquals("newGame1", games.get(1).get("gameName"));
-        assertNull(games.get(1).get("whiteUsername"));
-        assertEquals("username", games.get(1).get("blackUsername"));
-
-        assertEquals(3, games.get(2).get("gameID"));
-        assertEquals("newGame2", games.get(2).get("gameName"));
-        assertNull(games.get(2).get("blackUsername"));
-        assertEquals("username", games.get(2).get("whiteUsername"));
-
-        assertEquals(4, games.get(3).get("gameID"));
-        assertEquals("newGame3", games.get(3).get("gameName"));
-        assertNull(games.get(3).get("whiteUsername"));
-        assertEquals("username", games.get(3).get("blackUsername"));
-
-        assertEquals(5, games.get(4).get("gameID"));
-        assertEquals("newGame4", games.get(4).get("gameName"));
-        assertNull(games.get(4).get("whiteUsername"));
-        assertEquals("username", games.get(4).get("blackUsername"));
+        assertEquals(1, games.getFirst().gameID());
+        assertEquals("newGame", games.getFirst().gameName());
+        assertNull(games.get(0).blackUsername());
+        assertEquals("username", games.getFirst().whiteUsername());
+
+        assertEquals(2, games.get(1).gameID());
+        assertEquals("newGame1", games.get(1).gameName());
+        assertNull(games.get(1).whiteUsername());
+        assertEquals("username", games.get(1).blackUsername());
+
+        assertEquals(3, games.get(2).gameID());
+        assertEquals("newGame2", games.get(2).gameName());
+        assertNull(games.get(2).blackUsername());
+        assertEquals("username", games.get(2).whiteUsername());
+
+        assertEquals(4, games.get(3).gameID());
+        assertEquals("newGame3", games.get(3).gameName());
+        assertNull(games.get(3).whiteUsername());
+        assertEquals("username", games.get(3).blackUsername());
+
+        assertEquals(5, games.get(4).gameID());
+        assertEquals("newGame4", games.get(4).gameName());
+        assertNull(games.get(4).whiteUsername());
+        assertEquals("username", games.get(4).blackUsername());
     }
 
     @Test
-    @DisplayName("Get All Games Failure")
-    public void testGetAllGamesFailure() throws Exception {
+    @DisplayName("List Games Failure")
+    public void testListGamesFailure() throws Exception {
         UserData newUser = new UserData("username", "password", "email@email.com");
         AuthData auth = userService.registerUser(newUser);
         GameData newGame = new GameData(0, null, null, "newGame", new ChessGame());
         gameService.createGame(newGame, auth.authToken());
 
-        assertEquals(1, getAllGames().get("games").size());
+        assertEquals(1, listGames().size());
 
         ServiceException exception = assertThrows(ServiceException.class, () -> {
-            gameService.getAllGames("fakeauthtoken");
+            gameService.listGames("fakeauthtoken", null, null, false);
         });
 
         assertEquals(401, exception.statusCode());
@@ -201,34 +200,34 @@ public class GameServiceTests {
         gameService.joinGame(auth2.authToken(), new JoinGameData("WHITE", 4));
         gameService.joinGame(auth2.authToken(), new JoinGameData("WHITE", 5));
 
-        List<Map<String, Object>> games = gameService.getAllGames(auth.authToken()).get("games");
+        List<GameData> games = listGames(auth.authToken());
 
         assertEquals(5, games.size());
 
-        assertEquals(1, games.getFirst().get("gameID"));
-        assertEquals("newGame", games.getFirst().get("gameName"));
-        assertEquals("username2", games.get(0).get("blackUsername"));
-        assertEquals("username", games.getFirst().get("whiteUsername"));
-
-        assertEquals(2, games.get(1).get("gameID"));
-        assertEquals("newGame1", games.get(1).get("gameName"));
-        assertNull(games.get(1).get("whiteUsername"));
-        assertEquals("username", games.get(1).get("blackUsername"));
-
-        assertEquals(3, games.get(2).get("gameID"));
-        assertEquals("newGame2", games.get(2).get("gameName"));
-        assertNull(games.get(2).get("blackUsername"));
-        assertEquals("username", games.get(2).get("whiteUsername"));
-
-        assertEquals(4, games.get(3).get("gameID"));
-        assertEquals("newGame3", games.get(3).get("gameName"));
-        assertEquals("username2", games.get(3).get("whiteUsername"));
-        assertEquals("username", games.get(3).get("blackUsername"));
-
-        assertEquals(5, games.get(4).get("gameID"));
-        assertEquals("newGame4", games.get(4).get("gameName"));
-        assertEquals("username2", games.get(4).get("whiteUsername"));
-        assertEquals("username", games.get(4).get("blackUsername"));
+        assertEquals(1, games.getFirst().gameID());
+        assertEquals("newGame", games.getFirst().gameName());
+        assertEquals("username2", games.get(0).blackUsername());
+        assertEquals("username", games.getFirst().whiteUsername());
+
+        assertEquals(2, games.get(1).gameID());
+        assertEquals("newGame1", games.get(1).gameName());
+        assertNull(games.get(1).whiteUsername());
+        assertEquals("username", games.get(1).blackUsername());
+
+        assertEquals(3, games.get(2).gameID());
+        assertEquals("newGame2", games.get(2).gameName());
+        assertNull(games.get(2).blackUsername());
+        assertEquals("username", games.get(2).whiteUsername());
+
+        assertEquals(4, games.get(3).gameID());
+        assertEquals("newGame3", games.get(3).gameName());
+        assertEquals("username2", games.get(3).whiteUsername());
+        assertEquals("username", games.get(3).blackUsername());
+
+        assertEquals(5, games.get(4).gameID());
+        assertEquals("newGame4", games.get(4).gameName());
+        assertEquals("username2", games.get(4).whiteUsername());
+        assertEquals("username", games.get(4).blackUsername());
     }
 
     @Nested
@@ -304,8 +303,13 @@ public class GameServiceTests {
     }
 
     // ------ Helper functions ------ //
-    private Map<String, List<Map<String, Object>>> getAllGames() throws Exception{
-        return gameDataAccess.getAllGames();
+    private List<GameData> listGames() throws Exception {
+        return gameDataAccess.listGames(0, GameService.MAX_PAGE_SIZE, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<GameData> listGames(String authToken) throws Exception {
+        return (List<GameData>) gameService.listGames(authToken, null, null, false).get("games");
     }
 
     private Collection<UserData> getAllUsers() throws Exception {
@@ -0,0 +1,137 @@
+package chess;
+
+/**
+ * Attack bitboards for every piece type, built once when the class is loaded.
+ * <p>
+ * Knights, kings and pawns attack a fixed set of squares from each square, so those are
+ * plain per-square tables. Sliding pieces depend on which squares block them. For those,
+ * each square keeps a mask of the squares that can block it. The occupied squares under
+ * that mask are packed into a dense table index with {@link Long#compress}, which the JIT
+ * turns into a single PEXT instruction on hardware that has one.
+ */
+final class AttackTables {
+    static final long[] KNIGHT_ATTACKS = new long[ChessBoard.SQUARES];
+    static final long[] KING_ATTACKS = new long[ChessBoard.SQUARES];
+    /** Indexed by team ordinal, then by the square the pawn is on */
+    static final long[][] PAWN_ATTACKS = new long[2][ChessBoard.SQUARES];
+
+    private static final long[] ROOK_MASKS = new long[ChessBoard.SQUARES];
+    private static final long[] BISHOP_MASKS = new long[ChessBoard.SQUARES];
+    private static final long[][] ROOK_ATTACKS = new long[ChessBoard.SQUARES][];
+    private static final long[][] BISHOP_ATTACKS = new long[ChessBoard.SQUARES][];
+
+    private static final int[][] KNIGHT_OFFSETS = {
+        {-2, -1}, {-2, +1}, {+2, -1}, {+2, +1},
+        {-1, -2}, {+1, -2}, {-1, +2}, {+1, +2}
+    };
+    private static final int[][] KING_OFFSETS = {
+        {-1, 0}, {1, 0}, {0, -1}, {0, 1},
+        {-1, -1}, {-1, 1}, {1, -1}, {1, 1}
+    };
+    private static final int[][] ROOK_DIRECTIONS = {{0, -1}, {0, 1}, {-1, 0}, {1, 0}};
+    private static final int[][] BISHOP_DIRECTIONS = {{-1, -1}, {1, -1}, {-1, 1}, {1, 1}};
+
+    static {
+        for (int square = 0; square < ChessBoard.SQUARES; square++) {
+            int row = (square >>> 3) + 1;
+            int col = (square & 7) + 1;
+
+            KNIGHT_ATTACKS[square] = offsetTargets(row, col, KNIGHT_OFFSETS);
+            KING_ATTACKS[square] = offsetTargets(row, col, KING_OFFSETS);
+            PAWN_ATTACKS[ChessGame.TeamColor.WHITE.ordinal()][square] = offsetTargets(row, col, new int[][]{{1, -1}, {1, 1}});
+            PAWN_ATTACKS[ChessGame.TeamColor.BLACK.ordinal()][square] = offsetTargets(row, col, new int[][]{{-1, -1}, {-1, 1}});
+
+            ROOK_MASKS[square] = blockerMask(row, col, ROOK_DIRECTIONS);
+            BISHOP_MASKS[square] = blockerMask(row, col, BISHOP_DIRECTIONS);
+            ROOK_ATTACKS[square] = slidingTable(row, col, ROOK_MASKS[square], ROOK_DIRECTIONS);
+            BISHOP_ATTACKS[square] = slidingTable(row, col, BISHOP_MASKS[square], BISHOP_DIRECTIONS);
+        }
+    }
+
+    private AttackTables() {
+    }
+
+    /**
+     * @param square bit index of the rook's square
+     * @param occupied bitboard of every occupied square
+     * @return Squares a rook attacks, including the first blocker in each direction
+     */
+    static long rookAttacks(int square, long occupied) {
+        return ROOK_ATTACKS[square][(int) Long.compress(occupied, ROOK_MASKS[square])];
+    }
+
+    /**
+     * @param square bit index of the bishop's square
+     * @param occupied bitboard of every occupied square
+     * @return Squares a bishop attacks, including the first blocker in each direction
+     */
+    static long bishopAttacks(int square, long occupied) {
+        return BISHOP_ATTACKS[square][(int) Long.compress(occupied, BISHOP_MASKS[square])];
+    }
+
+    static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    private static long offsetTargets(int row, int col, int[][] offsets) {
+        long targets = 0;
+        for (int[] offset : offsets) {
+            int r = row + offset[0];
+            int c = col + offset[1];
+            if (ChessBoard.isOnBoard(r, c)) {
+                targets |= 1L << ChessBoard.squareIndex(r, c);
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * The squares along each ray that could block a slider. The last square of a ray is
+     * left out since it is attacked whether or not it is occupied.
+     */
+    private static long blockerMask(int row, int col, int[][] directions) {
+        long mask = 0;
+        for (int[] direction : directions) {
+            int r = row + direction[0];
+            int c = col + direction[1];
+            while (ChessBoard.isOnBoard(r + direction[0], c + direction[1])) {
+                mask |= 1L << ChessBoard.squareIndex(r, c);
+                r += direction[0];
+                c += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Walks every subset of the blocker mask and stores the attacks for it at the index
+     * Long.compress gives that subset.
+     */
+    private static long[] slidingTable(int row, int col, long mask, int[][] directions) {
+        long[] table = new long[1 << Long.bitCount(mask)];
+        long blockers = 0;
+        do {
+            table[(int) Long.compress(blockers, mask)] = rayAttacks(row, col, blockers, directions);
+            blockers = (blockers - mask) & mask;
+        } while (blockers != 0);
+        return table;
+    }
+
+    private static long rayAttacks(int row, int col, long blockers, int[][] directions) {
+        long attacks = 0;
+        for (int[] direction : directions) {
+            int r = row + direction[0];
+            int c = col + direction[1];
+            while (ChessBoard.isOnBoard(r, c)) {
+                long bit = 1L << ChessBoard.squareIndex(r, c);
+                attacks |= bit;
+                if ((blockers & bit) != 0) {
+                    break;
+                }
+                r += direction[0];
+                c += direction[1];
+            }
+        }
+        return attacks;
+    }
+}
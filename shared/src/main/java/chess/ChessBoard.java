@@ -1,30 +1,71 @@
 package chess;
 
 
+import com.google.gson.*;
+import com.google.gson.annotations.JsonAdapter;
+
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 
 /**
  * A chessboard that can hold and rearrange chess pieces.
  * <p>
+ * The board is stored as twelve 64-bit bitboards, one for each team and piece type,
+ * plus an occupancy mask per team and one for the whole board. Square (row, col) maps
+ * to bit (row - 1) * 8 + (col - 1), so a1 is bit 0 and h8 is bit 63.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessBoard.ChessBoardAdapter.class)
 public class ChessBoard {
-    public ChessPiece[][] board = new ChessPiece[9][9];
-    
+    static final int SQUARES = 64;
+    static final int PIECE_TYPES = ChessPiece.PieceType.values().length;
+    static final int NO_PIECE = 0xF;
+
+    // Undo records pack from/to squares (6 bits each) and moved/placed/captured piece indexes (4 bits each)
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int PIECE_MASK = 0xF;
+    private static final int UNDO_TO_SHIFT = 6;
+    private static final int UNDO_MOVING_SHIFT = 12;
+    private static final int UNDO_PLACED_SHIFT = 16;
+    private static final int UNDO_CAPTURED_SHIFT = 20;
+
+    private final long[] pieceBoards = new long[2 * PIECE_TYPES];
+    private final long[] teamBoards = new long[2];
+    private long occupied;
+    private long zobristKey;
+    // Set when the board was read from JSON with the old resign marker at [0][0]
+    private transient boolean legacyResignMarker;
+
     public ChessBoard() {
     }
 
     public ChessBoard(ChessPiece[][] board) {
-        this.board = board;
+        for (int row = 1; row < board.length && row <= 8; row++) {
+            for (int col = 1; col < board[row].length && col <= 8; col++) {
+                if (board[row][col] != null) {
+                    setPiece(squareIndex(row, col), board[row][col]);
+                }
+            }
+        }
     }
 
     @Override
     public String toString() {
-        return "ChessBoard{" +
-                "board=" + Arrays.toString(board) +
-                '}';
+        StringBuilder sb = new StringBuilder("ChessBoard{");
+        for (int row = 8; row >= 1; row--) {
+            sb.append('|');
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = getPiece(squareIndex(row, col));
+                sb.append(piece == null ? ' ' : pieceChar(piece)).append('|');
+            }
+            if (row > 1) {
+                sb.append(' ');
+            }
+        }
+        return sb.append('}').toString();
     }
 
     @Override
@@ -33,12 +74,12 @@ public class ChessBoard {
         if (o == null || getClass() != o.getClass()) { return false; }
 
         ChessBoard that = (ChessBoard) o;
-        return Arrays.deepEquals(board, that.board);
+        return Arrays.equals(pieceBoards, that.pieceBoards);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        return Long.hashCode(zobristKey);
     }
 
     /**
@@ -48,76 +89,113 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        this.board[position.getRow()][position.getColumn()] = piece;
+        int square = squareIndex(position);
+        clearSquare(square);
+        if (piece != null) {
+            setPiece(square, piece);
+        }
     }
 
     public void removePiece(ChessPosition position) {
-        this.board[position.getRow()][position.getColumn()] = null;
+        clearSquare(squareIndex(position));
     }
 
     public void makeMove(ChessMove move, ChessGame.TeamColor teamTurn) {
-        ChessPosition startPosition = move.getStartPosition();
-        ChessPosition endPosition = move.getEndPosition();
+        makeMove(move);
+    }
 
-        ChessPiece pieceMoving = this.getPiece(startPosition);
-        ChessPiece.PieceType type = pieceMoving.getPieceType();
-        ChessPiece pieceAtNewPos = new ChessPiece(teamTurn, type);
-        this.removePiece(startPosition);
-        if(move.getPromotionPiece() == null) {
-            this.addPiece(endPosition, pieceAtNewPos);
-        } else {
-            this.addPiece(endPosition, new ChessPiece(teamTurn, move.getPromotionPiece()));
-        }
+    /**
+     * Makes a move in place without checking that it is legal
+     *
+     * @param move the move to make, whose start square must hold a piece
+     * @return An undo record to pass to {@link #unmakeMove(int)} to take the move back
+     */
+    public int makeMove(ChessMove move) {
+        ChessPiece.PieceType promotion = move.getPromotionPiece();
+        return makeMove(squareIndex(move.getStartPosition()), squareIndex(move.getEndPosition()),
+                promotion == null ? NO_PIECE : promotion.ordinal());
     }
 
-    public ArrayList<PiecePositionPair> getBoardPieces() {
-        ArrayList<PiecePositionPair> pieces = new ArrayList<>();
-
-        for (int row = 0; row < board.length; row++) {
-            for (int col = 0; col < board.length; col++) {
-                ChessPiece piece = board[row][col];
-                if (piece != null) {
-                    ChessPosition position = new ChessPosition(row, col);
-                    pieces.add(new PiecePositionPair(piece, position));
-                }
-            }
+    /**
+     * Takes back a move made with {@link #makeMove(ChessMove)}, restoring the moved piece,
+     * any captured piece and the pawn of a promotion. Moves must be taken back in the
+     * reverse order they were made.
+     *
+     * @param undo the record returned when the move was made
+     */
+    public void unmakeMove(int undo) {
+        int from = undo & SQUARE_MASK;
+        int to = (undo >>> UNDO_TO_SHIFT) & SQUARE_MASK;
+        int moving = (undo >>> UNDO_MOVING_SHIFT) & PIECE_MASK;
+        int placed = (undo >>> UNDO_PLACED_SHIFT) & PIECE_MASK;
+        int captured = (undo >>> UNDO_CAPTURED_SHIFT) & PIECE_MASK;
+
+        togglePiece(placed, to);
+        togglePiece(moving, from);
+        if (captured != NO_PIECE) {
+            togglePiece(captured, to);
         }
+    }
 
-        return pieces;
+    /**
+     * Makes a move encoded by {@link PackedMove} in place without checking that it is legal
+     *
+     * @param move the packed move to make
+     * @return An undo record to pass to {@link #unmakeMove(int)} to take the move back
+     */
+    int makeMove(int move) {
+        return makeMove(PackedMove.from(move), PackedMove.to(move), PackedMove.promotionOrdinal(move));
     }
 
-    public ChessPosition getKingPosition(ChessGame.TeamColor teamColor) {
+    /**
+     * Moves the piece on one square to another, capturing anything already there
+     *
+     * @param from bit index of the square being moved from
+     * @param to bit index of the square being moved to
+     * @param promotionType ordinal of the promotion piece type, or NO_PIECE
+     * @return An undo record packing the squares, the moved, placed and captured pieces
+     */
+    int makeMove(int from, int to, int promotionType) {
+        int moving = pieceIndexAt(from);
+        int captured = pieceIndexAt(to);
+        int placed = promotionType == NO_PIECE ? moving : (moving / PIECE_TYPES) * PIECE_TYPES + promotionType;
 
-        for (int row = 0; row < board.length; row++) {
-            for (int col = 0; col < board.length; col++) {
-                ChessPiece piece = board[row][col];
-                if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING) {
-                    if (piece.getTeamColor() == teamColor) {
-                        return new ChessPosition(row, col);
-                    }
-                }
-            }
+        if (captured != NO_PIECE) {
+            togglePiece(captured, to);
         }
+        togglePiece(moving, from);
+        togglePiece(placed, to);
 
-        return null;
+        return from | (to << UNDO_TO_SHIFT) | (moving << UNDO_MOVING_SHIFT)
+                | (placed << UNDO_PLACED_SHIFT) | (captured << UNDO_CAPTURED_SHIFT);
     }
 
-    public ArrayList<PiecePositionPair> getBoardPieces(ChessGame.TeamColor teamColor) {
-        ArrayList<PiecePositionPair> pieces = new ArrayList<>();
-
-        for (int row = 0; row < board.length; row++) {
-            for (int col = 0; col < board.length; col++) {
-                ChessPiece piece = board[row][col];
-                if (piece != null) {
-                    if (piece.getTeamColor() == teamColor) {
-                        ChessPosition position = new ChessPosition(row, col);
-                        pieces.add(new PiecePositionPair(piece, position));
-                    }
-                }
-            }
+    /**
+     * @param teamColor the team whose king to test
+     * @return True if the team has a king and it is attacked by the other team
+     */
+    boolean isKingAttacked(ChessGame.TeamColor teamColor) {
+        long kings = pieceBoards[pieceIndex(teamColor, ChessPiece.PieceType.KING)];
+        if (kings == 0) {
+            return false;
         }
+        return isSquareAttacked(Long.numberOfTrailingZeros(kings), ChessGame.opponent(teamColor));
+    }
 
-        return pieces;
+    public ArrayList<PiecePositionPair> getBoardPieces() {
+        return collectPieces(occupied);
+    }
+
+    public ChessPosition getKingPosition(ChessGame.TeamColor teamColor) {
+        long kings = pieceBoards[pieceIndex(teamColor, ChessPiece.PieceType.KING)];
+        if (kings == 0) {
+            return null;
+        }
+        return toPosition(Long.numberOfTrailingZeros(kings));
+    }
+
+    public ArrayList<PiecePositionPair> getBoardPieces(ChessGame.TeamColor teamColor) {
+        return collectPieces(teamBoards[teamColor.ordinal()]);
     }
 
     /**
@@ -128,7 +206,10 @@ public class ChessBoard {
      * position
      */
     public ChessPiece getPiece(ChessPosition position) {
-        return this.board[position.getRow()][position.getColumn()];
+        if (!isOnBoard(position.getRow(), position.getColumn())) {
+            return null;
+        }
+        return getPiece(squareIndex(position));
     }
 
     /**
@@ -137,45 +218,273 @@ public class ChessBoard {
      */
     public void resetBoard() {
         // White non-pawns
-        addPiece(new ChessPosition(1, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(1, 2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(1, 3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(1, 4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(1, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(1, 6), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(1, 7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(1, 8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(1, 1), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(1, 2), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1, 3), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(1, 4), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(1, 5), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(1, 6), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(1, 7), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(1, 8), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK));
 
         // White pawns
-        addPiece(new ChessPosition(2, 1), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(2, 2), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(2, 3), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(2, 4), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(2, 5), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(2, 6), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(2, 7), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(2, 8), new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(2, 1), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(2, 2), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(2, 3), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(2, 4), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(2, 5), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(2, 6), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(2, 7), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(2, 8), ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
 
         // Black non-pawns
-        addPiece(new ChessPosition(8, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
-        addPiece(new ChessPosition(8, 2), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8, 3), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8, 4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
-        addPiece(new ChessPosition(8, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
-        addPiece(new ChessPosition(8, 6), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
-        addPiece(new ChessPosition(8, 7), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
-        addPiece(new ChessPosition(8, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(8, 1), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
+        addPiece(ChessPosition.of(8, 2), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8, 3), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(8, 4), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN));
+        addPiece(ChessPosition.of(8, 5), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING));
+        addPiece(ChessPosition.of(8, 6), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP));
+        addPiece(ChessPosition.of(8, 7), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT));
+        addPiece(ChessPosition.of(8, 8), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK));
 
         // Black pawns
-        addPiece(new ChessPosition(7, 1), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(7, 2), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(7, 3), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(7, 4), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(7, 5), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(7, 6), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(7, 7), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
-        addPiece(new ChessPosition(7, 8), new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(7, 1), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(7, 2), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(7, 3), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(7, 4), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(7, 5), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(7, 6), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(7, 7), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+        addPiece(ChessPosition.of(7, 8), ChessPiece.of(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+    }
+
+    // ------ ATTACK DETECTION ------ //
+
+    /**
+     * Determines if any piece of the attacking team could capture on the given square.
+     * Works outward from the target using the precomputed attack tables: a piece attacks
+     * the target exactly when the same kind of piece on the target would attack it back.
+     *
+     * @param square bit index of the square to test
+     * @param attackingTeam the team whose pieces might be attacking
+     * @return True if the square is attacked by the attacking team
+     */
+    boolean isSquareAttacked(int square, ChessGame.TeamColor attackingTeam) {
+        int base = attackingTeam.ordinal() * PIECE_TYPES;
+
+        if ((AttackTables.KNIGHT_ATTACKS[square] & pieceBoards[base + ChessPiece.PieceType.KNIGHT.ordinal()]) != 0) {
+            return true;
+        }
+        if ((AttackTables.KING_ATTACKS[square] & pieceBoards[base + ChessPiece.PieceType.KING.ordinal()]) != 0) {
+            return true;
+        }
+        // Attacking pawns sit where a defending pawn on the target square would capture
+        long pawnSources = AttackTables.PAWN_ATTACKS[ChessGame.opponent(attackingTeam).ordinal()][square];
+        if ((pawnSources & pieceBoards[base + ChessPiece.PieceType.PAWN.ordinal()]) != 0) {
+            return true;
+        }
+
+        long queens = pieceBoards[base + ChessPiece.PieceType.QUEEN.ordinal()];
+        long rookLike = pieceBoards[base + ChessPiece.PieceType.ROOK.ordinal()] | queens;
+        if (rookLike != 0 && (AttackTables.rookAttacks(square, occupied) & rookLike) != 0) {
+            return true;
+        }
+        long bishopLike = pieceBoards[base + ChessPiece.PieceType.BISHOP.ordinal()] | queens;
+        return bishopLike != 0 && (AttackTables.bishopAttacks(square, occupied) & bishopLike) != 0;
+    }
+
+    // ------ BITBOARD ACCESS ------ //
+
+    /**
+     * @param teamColor the team to look up
+     * @param type the piece type to look up
+     * @return Bitboard of every square holding that team's pieces of the given type
+     */
+    public long getPieceBoard(ChessGame.TeamColor teamColor, ChessPiece.PieceType type) {
+        return pieceBoards[pieceIndex(teamColor, type)];
     }
-}
 
+    /**
+     * @param teamColor the team to look up
+     * @return Bitboard of every square holding one of that team's pieces
+     */
+    public long getTeamBoard(ChessGame.TeamColor teamColor) {
+        return teamBoards[teamColor.ordinal()];
+    }
+
+    /**
+     * @return Bitboard of every occupied square
+     */
+    public long getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * @return Zobrist key of the piece placement, kept up to date as pieces are added,
+     * removed and moved
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * @return True if this board was read from JSON that marked the game resigned the old
+     * way, with a piece at row 0, column 0
+     */
+    public boolean hasLegacyResignMarker() {
+        return legacyResignMarker;
+    }
+
+    /**
+     * Gets the piece on a square given by its bit index
+     *
+     * @param square bit index of the square, 0 (a1) through 63 (h8)
+     * @return The piece on that square, or null if it is empty
+     */
+    ChessPiece getPiece(int square) {
+        int index = pieceIndexAt(square);
+        if (index == NO_PIECE) {
+            return null;
+        }
+        return ChessPiece.of(index);
+    }
+
+    /**
+     * @return Index into pieceBoards of the piece on the square, or NO_PIECE if it is empty
+     */
+    private int pieceIndexAt(int square) {
+        long bit = 1L << square;
+        if ((occupied & bit) == 0) {
+            return NO_PIECE;
+        }
+        int base = (teamBoards[0] & bit) != 0 ? 0 : PIECE_TYPES;
+        for (int type = 0; type < PIECE_TYPES; type++) {
+            if ((pieceBoards[base + type] & bit) != 0) {
+                return base + type;
+            }
+        }
+        return NO_PIECE;
+    }
+
+    /**
+     * Adds or removes a piece on a square, keeping the occupancy masks and the Zobrist
+     * key in step. Applying the same toggle twice leaves the board unchanged.
+     */
+    private void togglePiece(int index, int square) {
+        long bit = 1L << square;
+        pieceBoards[index] ^= bit;
+        teamBoards[index / PIECE_TYPES] ^= bit;
+        occupied ^= bit;
+        zobristKey ^= Zobrist.PIECE_KEYS[index][square];
+    }
+
+    /**
+     * Puts a piece on a square that must currently be empty
+     */
+    private void setPiece(int square, ChessPiece piece) {
+        togglePiece(pieceIndex(piece.getTeamColor(), piece.getPieceType()), square);
+    }
 
+    private void clearSquare(int square) {
+        int index = pieceIndexAt(square);
+        if (index != NO_PIECE) {
+            togglePiece(index, square);
+        }
+    }
+
+    private ArrayList<PiecePositionPair> collectPieces(long squares) {
+        ArrayList<PiecePositionPair> pieces = new ArrayList<>(Long.bitCount(squares));
+        while (squares != 0) {
+            int square = Long.numberOfTrailingZeros(squares);
+            squares &= squares - 1;
+            pieces.add(new PiecePositionPair(getPiece(square), toPosition(square)));
+        }
+        return pieces;
+    }
+
+    static int pieceIndex(ChessGame.TeamColor teamColor, ChessPiece.PieceType type) {
+        return teamColor.ordinal() * PIECE_TYPES + type.ordinal();
+    }
+
+    static int squareIndex(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    static int squareIndex(ChessPosition position) {
+        if (!isOnBoard(position.getRow(), position.getColumn())) {
+            throw new IllegalArgumentException("Position is off the board: " + position);
+        }
+        return squareIndex(position.getRow(), position.getColumn());
+    }
+
+    static ChessPosition toPosition(int square) {
+        return ChessPosition.of(square);
+    }
+
+    static boolean isOnBoard(int row, int col) {
+        return row >= 1 && row <= 8 && col >= 1 && col <= 8;
+    }
+
+    static char pieceChar(ChessPiece piece) {
+        char c = switch (piece.getPieceType()) {
+            case KING -> 'k';
+            case QUEEN -> 'q';
+            case BISHOP -> 'b';
+            case KNIGHT -> 'n';
+            case ROOK -> 'r';
+            case PAWN -> 'p';
+        };
+        return piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(c) : c;
+    }
+
+    /**
+     * Keeps the JSON form of a board as the original 9x9 {@code board} grid so stored games
+     * and clients are unaffected by the bitboard layout. Games stored before ChessGame had a
+     * resigned flag marked a resignation with a piece at {@code [0][0]}, off the board; that
+     * piece is not placed, but the board remembers it so ChessGame can read the game as
+     * resigned.
+     */
+    public static class ChessBoardAdapter implements JsonSerializer<ChessBoard>, JsonDeserializer<ChessBoard> {
+        @Override
+        public JsonElement serialize(ChessBoard src, Type typeOfSrc, JsonSerializationContext context) {
+            JsonArray rows = new JsonArray();
+            for (int row = 0; row <= 8; row++) {
+                JsonArray cols = new JsonArray();
+                for (int col = 0; col <= 8; col++) {
+                    ChessPiece piece = isOnBoard(row, col) ? src.getPiece(squareIndex(row, col)) : null;
+                    cols.add(piece == null ? JsonNull.INSTANCE : context.serialize(piece));
+                }
+                rows.add(cols);
+            }
+            JsonObject jsonObject = new JsonObject();
+            jsonObject.add("board", rows);
+            return jsonObject;
+        }
+
+        @Override
+        public ChessBoard deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+            ChessBoard board = new ChessBoard();
+            JsonElement rows = json.getAsJsonObject().get("board");
+            if (rows == null || !rows.isJsonArray()) {
+                return board;
+            }
+
+            JsonArray rowArray = rows.getAsJsonArray();
+            if (!rowArray.isEmpty()) {
+                JsonArray firstRow = rowArray.get(0).getAsJsonArray();
+                board.legacyResignMarker = !firstRow.isEmpty() && !firstRow.get(0).isJsonNull();
+            }
+            for (int row = 1; row < rowArray.size() && row <= 8; row++) {
+                JsonArray cols = rowArray.get(row).getAsJsonArray();
+                for (int col = 1; col < cols.size() && col <= 8; col++) {
+                    JsonElement element = cols.get(col);
+                    if (element != null && !element.isJsonNull()) {
+                        ChessPiece piece = context.deserialize(element, ChessPiece.class);
+                        board.setPiece(squareIndex(row, col), piece);
+                    }
+                }
+            }
+            return board;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package chess;
 
-import java.util.ArrayList;
+import com.google.gson.*;
+import com.google.gson.annotations.JsonAdapter;
+
+import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.Objects;
 
@@ -9,30 +12,58 @@ import java.util.Objects;
  * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
+ * <p>
+ * A game is not thread safe, and that includes methods that only look like reads, such as
+ * validMoves, isInCheckmate and evaluateStatus. They make and take back moves on the game's
+ * own board and fill scratch move lists the game keeps between calls. Use a game from one
+ * thread at a time; the server runs each game's commands one at a time on its mailbox.
  */
+@JsonAdapter(ChessGame.ChessGameAdapter.class)
 public class ChessGame {
     private ChessBoard currentBoard;
     private TeamColor teamTurn;
-    
+    private boolean resigned;
+    private int ply;
+
+    // Scratch buffers for the move generator, reused across calls instead of reallocated
+    private final transient MoveList pseudoMoves = new MoveList();
+    private final transient MoveList legalMoves = new MoveList();
+
+    // Last result of evaluateStatus, valid while positionKey() still equals statusKey
+    private transient GameStatus status;
+    private transient long statusKey;
+
     public ChessGame() {
         this.currentBoard = new ChessBoard();
         this.currentBoard.resetBoard();
         this.teamTurn = ChessGame.TeamColor.WHITE;
     }
 
+    /**
+     * Creates a game that starts from a given position instead of the starting one
+     *
+     * @param board the board to play on
+     * @param teamTurn the team whose turn it is
+     */
+    public ChessGame(ChessBoard board, TeamColor teamTurn) {
+        this.currentBoard = board;
+        this.teamTurn = teamTurn;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) { return true; }
         if (o == null || getClass() != o.getClass()) { return false; }
 
         ChessGame chessGame = (ChessGame) o;
-        return Objects.equals(currentBoard, chessGame.currentBoard) && teamTurn == chessGame.teamTurn;
+        return Objects.equals(currentBoard, chessGame.currentBoard) && teamTurn == chessGame.teamTurn &&
+                resigned == chessGame.resigned;
     }
 
     @Override
     public int hashCode() {
-        int result = Objects.hashCode(currentBoard);
-        result = 31 * result + Objects.hashCode(teamTurn);
+        int result = currentBoard == null ? 0 : Long.hashCode(positionKey());
+        result = 31 * result + Boolean.hashCode(resigned);
         return result;
     }
 
@@ -57,6 +88,50 @@ public class ChessGame {
         this.teamTurn = team;        
     }
 
+    /**
+     * Gets the 64-bit Zobrist key of the current position. The board keeps its part of the
+     * key up to date on every move, so this is constant time. Equal positions with the same
+     * side to move always have equal keys.
+     *
+     * @return Key covering the piece placement and which team is to move
+     */
+    public long positionKey() {
+        long key = currentBoard.getZobristKey();
+        return teamTurn == TeamColor.BLACK ? key ^ Zobrist.BLACK_TO_MOVE : key;
+    }
+
+    /**
+     * @return Number of moves made in this game so far, counting each side's move
+     */
+    public int getPly() {
+        return this.ply;
+    }
+
+    /**
+     * Sets the move count, for a game rebuilt from a position part way through
+     *
+     * @param ply number of moves already made
+     */
+    public void setPly(int ply) {
+        this.ply = ply;
+    }
+
+    /**
+     * @return True if a player has resigned and no further moves may be made
+     */
+    public boolean isResigned() {
+        return this.resigned;
+    }
+
+    /**
+     * Marks whether a player has resigned this game
+     *
+     * @param resigned true once a player resigns
+     */
+    public void setResigned(boolean resigned) {
+        this.resigned = resigned;
+    }
+
     /**
      * Enum identifying the 2 possible teams in a chess game
      */
@@ -65,6 +140,16 @@ public class ChessGame {
         BLACK
     }
 
+    /**
+     * Enum identifying the state of the game for the team whose turn it is
+     */
+    public enum GameStatus {
+        ONGOING,
+        CHECK,
+        CHECKMATE,
+        STALEMATE
+    }
+
     public void setChessBoard(ChessBoard board) {
         this.currentBoard = board;
     }
@@ -82,40 +167,95 @@ public class ChessGame {
             return null;
         }
 
-        Collection<ChessMove> possibleMoves = piece.pieceMoves(this.currentBoard, startPosition);
+        legalMoves.clear();
+        generateLegalMoves(ChessBoard.squareIndex(startPosition), piece, legalMoves);
+        return legalMoves.toChessMoves();
+    }
 
-        Collection<ChessMove> validMoves = new ArrayList<>();
+    /**
+     * Gets every legal move for the team whose turn it is, in a single pass over its pieces
+     *
+     * @return Collection of every legal move, empty if the team is checkmated or stalemated
+     */
+    public Collection<ChessMove> legalMoves() {
+        generateAllLegalMoves(teamTurn, legalMoves);
+        return legalMoves.toChessMoves();
+    }
 
-        for (ChessMove move : possibleMoves) {
-            ChessPiece[][] tempBoard = copyBoard(currentBoard);
-            try {
-                currentBoard.makeMove(move, piece.getTeamColor());
-                if(!isInCheck(piece.getTeamColor())) {
-                    validMoves.add(move);
-                }
-                currentBoard = new ChessBoard(tempBoard);
-            } catch (Exception e) {
-                throw e;
-            }
+    /**
+     * Counts the leaf nodes of the legal move tree to the given depth. Comparing the counts
+     * against published results for standard positions checks the move generator, and the
+     * time it takes measures its throughput.
+     *
+     * @param depth how many plies to search, where 0 counts only the current position
+     * @return Number of positions reached after exactly depth plies
+     */
+    public long perft(int depth) {
+        if (depth <= 0) {
+            return 1;
         }
+        MoveList[] movesByDepth = new MoveList[depth + 1];
+        for (int i = 1; i <= depth; i++) {
+            movesByDepth[i] = new MoveList();
+        }
+        return perft(depth, movesByDepth);
+    }
 
-        return validMoves;
+    private long perft(int depth, MoveList[] movesByDepth) {
+        MoveList moves = movesByDepth[depth];
+        generateAllLegalMoves(teamTurn, moves);
+        if (depth == 1) {
+            return moves.size();
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int undo = currentBoard.makeMove(moves.get(i));
+            teamTurn = opponent(teamTurn);
+            nodes += perft(depth - 1, movesByDepth);
+            teamTurn = opponent(teamTurn);
+            currentBoard.unmakeMove(undo);
+        }
+        return nodes;
     }
 
-    public ChessPiece[][] copyBoard(ChessBoard currentBoard) {
-        ChessPiece[][] newBoard = new ChessPiece[9][9];
+    /**
+     * Fills a move list with the legal moves of every piece a team has
+     *
+     * @param teamColor the team to generate moves for
+     * @param moves the list to fill, which is cleared first
+     */
+    private void generateAllLegalMoves(TeamColor teamColor, MoveList moves) {
+        moves.clear();
+        long pieces = currentBoard.getTeamBoard(teamColor);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            generateLegalMoves(square, currentBoard.getPiece(square), moves);
+        }
+    }
 
-        for (int i = 1; i <= 8; i++) {
-            for (int j = 1; j <= 8; j++) {
-                ChessPosition newPosition = new ChessPosition(i, j);
-                ChessPiece originalPiece = currentBoard.getPiece(newPosition);
-                if (originalPiece != null) {
-                    newBoard[i][j] = new ChessPiece(originalPiece.getTeamColor(), originalPiece.getPieceType()); // Assuming a copy constructor exists
-                }
+    /**
+     * Adds the legal moves for the piece on a square to a move list. Each candidate
+     * is made on the board, kept if it leaves its own king safe, and then taken back.
+     *
+     * @param from bit index of the square the piece is on
+     * @param piece the piece on that square
+     * @param moves the list the legal moves are appended to
+     */
+    private void generateLegalMoves(int from, ChessPiece piece, MoveList moves) {
+        pseudoMoves.clear();
+        piece.pieceMoves(currentBoard, from, pseudoMoves);
+
+        for (int i = 0; i < pseudoMoves.size(); i++) {
+            int move = pseudoMoves.get(i);
+            int undo = currentBoard.makeMove(move);
+            boolean leavesKingSafe = !currentBoard.isKingAttacked(piece.getTeamColor());
+            currentBoard.unmakeMove(undo);
+            if (leavesKingSafe) {
+                moves.add(move);
             }
         }
-
-        return newBoard;
     }
 
     /**
@@ -130,13 +270,21 @@ public class ChessGame {
             throw new InvalidMoveException("Error: Its not this team's turn.");
         }
 
-        Collection<ChessMove> validMoves = validMoves(move.getStartPosition());
+        ChessPosition end = move.getEndPosition();
+        if (!ChessBoard.isOnBoard(end.getRow(), end.getColumn())) {
+            throw new InvalidMoveException("Error: Invalid move!");
+        }
+
+        int packedMove = PackedMove.of(move);
+        legalMoves.clear();
+        generateLegalMoves(PackedMove.from(packedMove), piece, legalMoves);
 
-        if (!validMoves.contains(move)) {
+        if (!legalMoves.containsMove(packedMove)) {
             throw new InvalidMoveException("Error: Invalid move!");
         } else {
-            currentBoard.makeMove(move, this.teamTurn);
-            this.teamTurn = (this.teamTurn == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+            currentBoard.makeMove(move);
+            this.teamTurn = opponent(this.teamTurn);
+            this.ply++;
         }
     }
 
@@ -147,26 +295,18 @@ public class ChessGame {
      * @return True if the specified team is in check
      */
     public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = currentBoard.getKingPosition(teamColor);
-
-        if(kingPosition == null) {
-            return false;
-        }
-        
-        for (PiecePositionPair pair : currentBoard.getBoardPieces()) {
-            ChessPiece piece = pair.getPiece();
-            ChessPosition position = pair.getPosition();
-            if (piece.getTeamColor() != teamColor) {
-                Collection<ChessMove> opponentMoves = piece.pieceMoves(currentBoard, position);
-                for (ChessMove move : opponentMoves) {
-                    if (move.getEndPosition().equals(kingPosition)) {
-                        return true;
-                    }
-                }
-            }
-        }
+        return currentBoard.isKingAttacked(teamColor);
+    }
 
-        return false;
+    /**
+     * Determines if a square could be captured on by any piece of the attacking team
+     *
+     * @param position the square to test
+     * @param attackingTeam the team whose pieces might be attacking the square
+     * @return True if the square is attacked by the attacking team
+     */
+    public boolean isSquareAttacked(ChessPosition position, TeamColor attackingTeam) {
+        return currentBoard.isSquareAttacked(ChessBoard.squareIndex(position), attackingTeam);
     }
 
     /**
@@ -176,27 +316,10 @@ public class ChessGame {
      * @return True if the specified team is in checkmate
      */
     public boolean isInCheckmate(TeamColor teamColor) {
-        if (!isInCheck(teamColor)) {
-            return false;
-        }
-
-        for (PiecePositionPair pair : currentBoard.getBoardPieces(teamColor)) {
-            ChessPosition position = pair.getPosition();
-
-            Collection<ChessMove> validMoves = validMoves(position);
-            for (ChessMove move : validMoves) {
-                ChessPiece[][] tempBoard = copyBoard(currentBoard);
-                try {
-                    currentBoard.makeMove(move, teamColor);
-                    if (!isInCheck(teamColor)) {
-                        return false;
-                    }
-                } catch (Exception e) {
-                }
-                currentBoard = new ChessBoard(tempBoard);
-            }
+        if (teamColor == teamTurn) {
+            return evaluateStatus() == GameStatus.CHECKMATE;
         }
-        return true;
+        return isInCheck(teamColor) && !hasLegalMove(teamColor);
     }
 
     /**
@@ -207,17 +330,58 @@ public class ChessGame {
      * @return True if the specified team is in stalemate, otherwise false
      */
     public boolean isInStalemate(TeamColor teamColor) {
-        if (isInCheck(teamColor)) {
-            return false;
+        if (teamColor == teamTurn) {
+            return evaluateStatus() == GameStatus.STALEMATE;
         }
+        return !isInCheck(teamColor) && !hasLegalMove(teamColor);
+    }
 
-        for (PiecePositionPair pair : currentBoard.getBoardPieces(teamColor)) {
-            ChessPosition position = pair.getPosition();
-            if (!validMoves(position).isEmpty()) {
-                return false;
+    /**
+     * Works out check, checkmate and stalemate for the team whose turn it is in one pass.
+     * The result is cached against the position key, so asking again before the next move
+     * costs nothing.
+     *
+     * @return The status of the game for the team to move
+     */
+    public GameStatus evaluateStatus() {
+        long key = positionKey();
+        if (status != null && statusKey == key) {
+            return status;
+        }
+
+        boolean inCheck = isInCheck(teamTurn);
+        boolean hasMove = hasLegalMove(teamTurn);
+        if (hasMove) {
+            status = inCheck ? GameStatus.CHECK : GameStatus.ONGOING;
+        } else {
+            status = inCheck ? GameStatus.CHECKMATE : GameStatus.STALEMATE;
+        }
+        statusKey = key;
+        return status;
+    }
+
+    /**
+     * Stops at the first legal move found for any of the team's pieces
+     *
+     * @param teamColor the team to look for a move for
+     * @return True if the team has at least one legal move
+     */
+    private boolean hasLegalMove(TeamColor teamColor) {
+        long pieces = currentBoard.getTeamBoard(teamColor);
+        while (pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            legalMoves.clear();
+            generateLegalMoves(square, currentBoard.getPiece(square), legalMoves);
+            if (!legalMoves.isEmpty()) {
+                return true;
             }
         }
-        return true;
+        return false;
+    }
+
+    static TeamColor opponent(TeamColor teamColor) {
+        return teamColor == TeamColor.WHITE ? TeamColor.BLACK : TeamColor.WHITE;
     }
 
     /**
@@ -237,4 +401,42 @@ public class ChessGame {
     public ChessBoard getBoard() {
         return this.currentBoard;
     }
+
+    /**
+     * Writes the same JSON fields Gson wrote for this class by reflection. Reading a game
+     * also treats the board's old resign marker as the game being resigned, so games
+     * resigned before the resigned flag existed stay resigned.
+     */
+    public static class ChessGameAdapter implements JsonSerializer<ChessGame>, JsonDeserializer<ChessGame> {
+        @Override
+        public JsonElement serialize(ChessGame src, Type typeOfSrc, JsonSerializationContext context) {
+            JsonObject jsonObject = new JsonObject();
+            jsonObject.add("currentBoard", context.serialize(src.currentBoard, ChessBoard.class));
+            if (src.teamTurn != null) {
+                jsonObject.addProperty("teamTurn", src.teamTurn.name());
+            }
+            jsonObject.addProperty("resigned", src.resigned);
+            jsonObject.addProperty("ply", src.ply);
+            return jsonObject;
+        }
+
+        @Override
+        public ChessGame deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+            JsonObject jsonObject = json.getAsJsonObject();
+            ChessBoard board = jsonObject.has("currentBoard") && !jsonObject.get("currentBoard").isJsonNull()
+                    ? context.deserialize(jsonObject.get("currentBoard"), ChessBoard.class)
+                    : new ChessBoard();
+            TeamColor teamTurn = jsonObject.has("teamTurn") && !jsonObject.get("teamTurn").isJsonNull()
+                    ? TeamColor.valueOf(jsonObject.get("teamTurn").getAsString())
+                    : TeamColor.WHITE;
+
+            ChessGame game = new ChessGame(board, teamTurn);
+            boolean resigned = jsonObject.has("resigned") && jsonObject.get("resigned").getAsBoolean();
+            game.setResigned(resigned || board.hasLegacyResignMarker());
+            if (jsonObject.has("ply")) {
+                game.setPly(jsonObject.get("ply").getAsInt());
+            }
+            return game;
+        }
+    }
 }
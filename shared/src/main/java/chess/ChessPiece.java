@@ -1,24 +1,60 @@
 package chess;
 
-import java.util.ArrayList;
+import com.google.gson.*;
+import com.google.gson.annotations.JsonAdapter;
+
+import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.Objects;
 
 /**
  * Represents a single chess piece
  * <p>
+ * Pieces are immutable, so the twelve team/type combinations are shared through
+ * {@link #of(ChessGame.TeamColor, PieceType)} rather than allocated per use.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessPiece.ChessPieceAdapter.class)
 public class ChessPiece {
-    public ChessGame.TeamColor pieceColor;
-    public ChessPiece.PieceType type;
+    private static final ChessPiece[] PIECES = new ChessPiece[ChessGame.TeamColor.values().length * PieceType.values().length];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[ChessBoard.pieceIndex(color, type)] = new ChessPiece(color, type);
+            }
+        }
+    }
+
+    public final ChessGame.TeamColor pieceColor;
+    public final ChessPiece.PieceType type;
     
     public ChessPiece(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
         this.pieceColor = pieceColor;
         this.type = type;
     }
 
+    /**
+     * Gets the shared instance of a piece
+     *
+     * @param pieceColor which team the piece belongs to
+     * @param type which type of piece it is
+     * @return The cached piece for that team and type
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, ChessPiece.PieceType type) {
+        return PIECES[ChessBoard.pieceIndex(pieceColor, type)];
+    }
+
+    /**
+     * @param index a piece index as used by ChessBoard's bitboards
+     * @return The cached piece for that index
+     */
+    static ChessPiece of(int index) {
+        return PIECES[index];
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) { return true; }
@@ -77,81 +113,76 @@ public class ChessPiece {
      * @return Collection of valid moves
      */
     public Collection<ChessMove> pieceMoves(ChessBoard board, ChessPosition myPosition) {
-        Collection<ChessMove> moves = new ArrayList<>();
+        MoveList moves = new MoveList();
+        pieceMoves(board, ChessBoard.squareIndex(myPosition), moves);
+        return moves.toChessMoves();
+    }
 
+    /**
+     * Adds every move this piece could make from a square to a move list as packed ints.
+     * Does not take into account moves that are illegal due to leaving the king in danger
+     *
+     * @param board The chess board we are working with
+     * @param from Bit index of the square the piece is on
+     * @param moves The list the packed moves are added to
+     */
+    void pieceMoves(ChessBoard board, int from, MoveList moves) {
         switch(this.type) {
-            case BISHOP -> addBishopMoves(board, myPosition, moves);
-            case ROOK -> addRookMoves(board, myPosition, moves);
-            case QUEEN -> addQueenMoves(board, myPosition, moves);
-            case KNIGHT -> addKnightMoves(board, myPosition, moves);
-            case KING -> addKingMoves(board, myPosition, moves);
-            case PAWN -> addPawnMoves(board, myPosition, moves);
+            case BISHOP -> addBishopMoves(board, from, moves);
+            case ROOK -> addRookMoves(board, from, moves);
+            case QUEEN -> addQueenMoves(board, from, moves);
+            case KNIGHT -> addKnightMoves(board, from, moves);
+            case KING -> addKingMoves(board, from, moves);
+            case PAWN -> addPawnMoves(board, from, moves);
             default -> throw new IllegalArgumentException("Unexpected value: " + this.type);
         }
-
-        return moves;
     }
 
     /**
-     * Helps calculate all of the possible moves a bishop can make, passes given information
-     * on to a function that calculates the moves in each diagonal direction
+     * Helps calculate all of the possible moves a bishop can make by looking up the squares
+     * it attacks along its diagonals given the pieces currently blocking them
      *
      * @param board The chess board we are working with
-     * @param myPosition The current position of piece
-     * @param moves The collection of possible moves for this piece
+     * @param from Bit index of the square the piece is on
+     * @param moves The list of possible moves for this piece
      */
-    private void addBishopMoves(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves) {
-        addMoves(board, myPosition, moves, -1, -1);
-        addMoves(board, myPosition, moves, 1, -1);
-        addMoves(board, myPosition, moves, -1, 1);
-        addMoves(board, myPosition, moves, 1, 1);
+    private void addBishopMoves(ChessBoard board, int from, MoveList moves) {
+        addTargets(board, from, AttackTables.bishopAttacks(from, board.getOccupied()), moves);
     }
 
     /**
-     * Helps calculate all of the possible moves a rook can make, passes given information
-     * on to a function that calculates the moves in each straight direction
+     * Helps calculate all of the possible moves a rook can make by looking up the squares
+     * it attacks along its row and column given the pieces currently blocking them
      *
      * @param board The chess board we are working with
-     * @param myPosition The current position of piece
-     * @param moves The collection of possible moves for this piece
+     * @param from Bit index of the square the piece is on
+     * @param moves The list of possible moves for this piece
      */
-    private void addRookMoves(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves) {
-        addMoves(board, myPosition, moves, 0, -1);
-        addMoves(board, myPosition, moves, 0, 1);
-        addMoves(board, myPosition, moves, -1, 0);
-        addMoves(board, myPosition, moves, 1, 0);
+    private void addRookMoves(ChessBoard board, int from, MoveList moves) {
+        addTargets(board, from, AttackTables.rookAttacks(from, board.getOccupied()), moves);
     }
 
     /**
      * Helps calculate all of the moves a queen can make, since a queen combines the moves from a 
-     * bishop and a rook we will use the addBishopMoves function and the addRookMoves functions 
-     * to create the Collection of moves for the queen. 
+     * bishop and a rook its targets are the union of both lookups.
      *
      * @param board The chess board we are working with
-     * @param myPosition The current position of piece
-     * @param moves The collection of possible moves for this piece
+     * @param from Bit index of the square the piece is on
+     * @param moves The list of possible moves for this piece
      */
-    private void addQueenMoves(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves) {
-        addBishopMoves(board, myPosition, moves);
-        addRookMoves(board, myPosition, moves);
+    private void addQueenMoves(ChessBoard board, int from, MoveList moves) {
+        addTargets(board, from, AttackTables.queenAttacks(from, board.getOccupied()), moves);
     }
 
     /**
      * Helps calculate all of the possible moves for a knight at a specific position.  
      *
      * @param board The chess board we are working with
-     * @param myPosition The current position of piece
-     * @param moves The collection of possible moves for this piece
+     * @param from Bit index of the square the piece is on
+     * @param moves The list of possible moves for this piece
      */
-    private void addKnightMoves(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves) {
-        int[][] knightMoves = {
-            {-2, -1}, {-2, +1}, // 2 down, 1 left/right
-            {+2, -1}, {+2, +1}, // 2 up, 1 left/right
-            {-1, -2}, {+1, -2}, // 1 up/down, 2 left
-            {-1, +2}, {+1, +2}  // 1 up/down, 2 right
-        };
-
-        addMovesOfKingOrKnight(knightMoves, board, myPosition, moves);
+    private void addKnightMoves(ChessBoard board, int from, MoveList moves) {
+        addTargets(board, from, AttackTables.KNIGHT_ATTACKS[from], moves);
     }
 
     /**
@@ -160,141 +191,91 @@ public class ChessPiece {
      * NOTE: This function does not include logic to figure out if the king is in check or checkmate. 
      * 
      * @param board The chess board we are working with
-     * @param myPosition The current position of piece
-     * @param moves The collection of possible moves for this piece
+     * @param from Bit index of the square the piece is on
+     * @param moves The list of possible moves for this piece
      */
-    private void addKingMoves(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves) {
-        int[][] kingMoves = {
-            {-1, 0},  {1, 0},
-            {0, -1},  {0, 1},
-            {-1, -1}, {-1, 1},
-            {1, -1}, {1, 1}
-        };
-
-        addMovesOfKingOrKnight(kingMoves, board, myPosition, moves);
+    private void addKingMoves(ChessBoard board, int from, MoveList moves) {
+        addTargets(board, from, AttackTables.KING_ATTACKS[from], moves);
     }
 
     /**
-     * Helps calculate all of the possible moves for a king or a knight at a specific position.  
+     * Adds a move to each attacked square that is not held by this piece's own team,
+     * flagging the ones that capture.
      *
-     * NOTE: This function does not include logic to figure out if the king is in check or checkmate. 
-     * 
-     * @param pieceMoves The moves that either a king or a knight could possibly make from any given position
      * @param board The chess board we are working with
-     * @param myPosition The current position of piece
-     * @param moves The collection of possible moves for this piece
+     * @param from Bit index of the square the piece is on
+     * @param attacks Bitboard of the squares the piece attacks
+     * @param moves The list of possible moves for this piece
      */
-    private void addMovesOfKingOrKnight(int[][] pieceMoves, ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves) {
-        for (int[] move : pieceMoves) {
-            int newRow = myPosition.getRow() + move[0];
-            int newCol = myPosition.getColumn() + move[1];
-
-            if(isValidPosition(newRow, newCol)) {
-                ChessPosition newPosition = new ChessPosition(newRow, newCol);
-                ChessPiece pieceAtNewPos = board.getPiece(newPosition);
-
-                if(pieceAtNewPos == null || pieceAtNewPos.getTeamColor() != this.pieceColor) {
-                    moves.add(new ChessMove(myPosition, newPosition, null));
-                }
-            }
+    private void addTargets(ChessBoard board, int from, long attacks, MoveList moves) {
+        long occupied = board.getOccupied();
+        long targets = attacks & ~board.getTeamBoard(this.pieceColor);
+
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves.add(PackedMove.of(from, to, (occupied & (1L << to)) != 0 ? PackedMove.CAPTURE : 0));
         }
     }
 
     /**
-     * Helps calculate all of the possible moves for a pawn at a specific position not including captures.
+     * Helps calculate all of the possible moves for a pawn at a specific position, with captures
+     * looked up from the pawn attack table.
      * 
      * @param board The chess board we are working with
-     * @param myPosition The current position of piece
-     * @param moves The collection of possible moves for this piece
+     * @param from Bit index of the square the piece is on
+     * @param moves The list of possible moves for this piece
      */
-    private void addPawnMoves(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves) {
-        int row = myPosition.getRow();
-        int col = myPosition.getColumn();
+    private void addPawnMoves(ChessBoard board, int from, MoveList moves) {
+        int row = (from >>> 3) + 1;
+        int col = (from & 7) + 1;
         int direction = (this.pieceColor == ChessGame.TeamColor.WHITE ? 1 : -1);
+        long occupied = board.getOccupied();
 
-        ChessPosition forwardOne = new ChessPosition((row + direction), col);
-        if (isValidPosition(forwardOne.getRow(), forwardOne.getColumn()) && board.getPiece(forwardOne) == null) {
+        int forwardRow = row + direction;
+        if (isValidPosition(forwardRow, col) && (occupied & (1L << ChessBoard.squareIndex(forwardRow, col))) == 0) {
+            int forwardOne = ChessBoard.squareIndex(forwardRow, col);
             // Check for promotion
-            if(forwardOne.getRow() == 1 || forwardOne.getRow() == 8) {
-                moves.add(new ChessMove(myPosition, forwardOne, ChessPiece.PieceType.QUEEN));
-                moves.add(new ChessMove(myPosition, forwardOne, ChessPiece.PieceType.BISHOP));
-                moves.add(new ChessMove(myPosition, forwardOne, ChessPiece.PieceType.KNIGHT));
-                moves.add(new ChessMove(myPosition, forwardOne, ChessPiece.PieceType.ROOK));
+            if(forwardRow == 1 || forwardRow == 8) {
+                addPromotions(from, forwardOne, 0, moves);
             } else {
-                moves.add(new ChessMove(myPosition, forwardOne, null));
+                moves.add(PackedMove.of(from, forwardOne, 0));
             }
-        }
 
-        if((row == 2 && this.pieceColor == ChessGame.TeamColor.WHITE) || (row == 7 && this.pieceColor == ChessGame.TeamColor.BLACK)) {
-            ChessPosition forwardTwo = new ChessPosition(row + 2 * direction, col);
-            if (board.getPiece(forwardTwo) == null && board.getPiece(forwardOne) == null) {
-                moves.add(new ChessMove(myPosition, forwardTwo, null));
+            if((row == 2 && this.pieceColor == ChessGame.TeamColor.WHITE) || (row == 7 && this.pieceColor == ChessGame.TeamColor.BLACK)) {
+                int forwardTwo = ChessBoard.squareIndex(row + 2 * direction, col);
+                if ((occupied & (1L << forwardTwo)) == 0) {
+                    moves.add(PackedMove.of(from, forwardTwo, PackedMove.DOUBLE_PAWN_PUSH));
+                }
             }
         }
 
-        addPawnCapture(board, myPosition, row+direction, col - 1, moves);
-        addPawnCapture(board, myPosition, row+direction, col + 1, moves);
-    }
-
-    /**
-     * Helps calculate all of the straight moves in a specific direction for rooks and queens.
-     * 
-     * @param board The chess board we are working with
-     * @param myPosition The current position of piece
-     * @param moves The collection of possible moves for this piece
-     * @param rowIncrement The increment with which we are moving the column value to find a new move
-     * @param colIncrement The increment with which we are moving the column value to find a new move
-     */
-    private void addMoves(ChessBoard board, ChessPosition myPosition, Collection<ChessMove> moves, int rowIncrement, int colIncrement) {
-        int currentRow = myPosition.getRow();
-        int currentCol = myPosition.getColumn();
-
-        while(true) {
-            currentRow += rowIncrement;
-            currentCol += colIncrement;
-
-            if(!isValidPosition(currentRow, currentCol)) {
-                break;
-            }
-
-            ChessPosition newPosition = new ChessPosition(currentRow, currentCol);
-            ChessPiece pieceAtNewPos = board.getPiece(newPosition);
-
-            if(pieceAtNewPos == null) {
-                moves.add(new ChessMove(myPosition, newPosition, null));
-            } else if (pieceAtNewPos.getTeamColor() != this.pieceColor) {
-                moves.add(new ChessMove(myPosition, newPosition, null));
-                break;
+        long captures = AttackTables.PAWN_ATTACKS[this.pieceColor.ordinal()][from]
+                & board.getTeamBoard(ChessGame.opponent(this.pieceColor));
+        while (captures != 0) {
+            int to = Long.numberOfTrailingZeros(captures);
+            captures &= captures - 1;
+            if(forwardRow == 1 || forwardRow == 8) {
+                addPromotions(from, to, PackedMove.CAPTURE, moves);
             } else {
-                break;
+                moves.add(PackedMove.of(from, to, PackedMove.CAPTURE));
             }
         }
     }
 
     /**
-     * Helps calculate if there are any possible captures for a specific pawn to make and adds to moves. 
-     * 
-     * @param board The chess board we are working with
-     * @param myPosition The current position of piece
-     * @param newRow The row of the possible new position
-     * @param newCol The column of the possible new position
-     * @param moves The collection of possible moves for this piece
+     * Adds one move for each piece type a pawn can promote to.
+     *
+     * @param from Bit index of the square the pawn is on
+     * @param to Bit index of the square on the last row
+     * @param flags Flags shared by each of the moves
+     * @param moves The list of possible moves for this piece
      */
-    private void addPawnCapture(ChessBoard board, ChessPosition myPosition, int newRow, int newCol, Collection<ChessMove> moves) {
-        if(isValidPosition(newRow, newCol)) {
-            ChessPosition capturePosition = new ChessPosition(newRow, newCol);
-            ChessPiece targetPiece = board.getPiece(capturePosition);
-            if(targetPiece != null && targetPiece.getTeamColor() != this.pieceColor) {
-                if(newRow == 1 || newRow == 8) {
-                    moves.add(new ChessMove(myPosition, capturePosition, ChessPiece.PieceType.QUEEN));
-                    moves.add(new ChessMove(myPosition, capturePosition, ChessPiece.PieceType.BISHOP));
-                    moves.add(new ChessMove(myPosition, capturePosition, ChessPiece.PieceType.KNIGHT));
-                    moves.add(new ChessMove(myPosition, capturePosition, ChessPiece.PieceType.ROOK));
-                } else {
-                    moves.add(new ChessMove(myPosition, capturePosition, null));
-                }
-            }
-        }
+    private void addPromotions(int from, int to, int flags, MoveList moves) {
+        moves.add(PackedMove.of(from, to, ChessPiece.PieceType.QUEEN, flags));
+        moves.add(PackedMove.of(from, to, ChessPiece.PieceType.BISHOP, flags));
+        moves.add(PackedMove.of(from, to, ChessPiece.PieceType.KNIGHT, flags));
+        moves.add(PackedMove.of(from, to, ChessPiece.PieceType.ROOK, flags));
     }
 
     /**
@@ -308,4 +289,27 @@ public class ChessPiece {
         return row >= 1 && row <= 8 && col >= 1 && col <= 8;
     }
 
+    /**
+     * Reads pieces back as the shared instances instead of new objects.
+     */
+    public static class ChessPieceAdapter implements JsonSerializer<ChessPiece>, JsonDeserializer<ChessPiece> {
+        @Override
+        public JsonElement serialize(ChessPiece src, Type typeOfSrc, JsonSerializationContext context) {
+            JsonObject jsonObject = new JsonObject();
+            jsonObject.addProperty("pieceColor", src.pieceColor.name());
+            jsonObject.addProperty("type", src.type.name());
+            return jsonObject;
+        }
+
+        @Override
+        public ChessPiece deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+            JsonObject jsonObject = json.getAsJsonObject();
+            try {
+                return of(ChessGame.TeamColor.valueOf(jsonObject.get("pieceColor").getAsString()),
+                        PieceType.valueOf(jsonObject.get("type").getAsString()));
+            } catch (RuntimeException e) {
+                throw new JsonParseException("Invalid chess piece: " + json, e);
+            }
+        }
+    }
 }
@@ -1,12 +1,28 @@
 package chess;
 
+import com.google.gson.*;
+import com.google.gson.annotations.JsonAdapter;
+
+import java.lang.reflect.Type;
+
 /**
  * Represents a single square position on a chess board
  * <p>
+ * Positions are immutable, so the 64 on-board squares are shared through
+ * {@link #of(int, int)} rather than allocated per use.
+ * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
  */
+@JsonAdapter(ChessPosition.ChessPositionAdapter.class)
 public class ChessPosition {
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < SQUARES.length; square++) {
+            SQUARES[square] = new ChessPosition((square >>> 3) + 1, (square & 7) + 1);
+        }
+    }
 
     public final int row;
     public final int col;
@@ -16,6 +32,28 @@ public class ChessPosition {
         this.col = col;
     }
 
+    /**
+     * Gets the shared instance of a position
+     *
+     * @param row the row, 1 through 8 for squares on the board
+     * @param col the column, 1 through 8 for squares on the board
+     * @return The cached position for on-board squares, or a new position otherwise
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row >= 1 && row <= 8 && col >= 1 && col <= 8) {
+            return SQUARES[(row - 1) * 8 + (col - 1)];
+        }
+        return new ChessPosition(row, col);
+    }
+
+    /**
+     * @param square bit index of a square, 0 (a1) through 63 (h8)
+     * @return The cached position for that square
+     */
+    static ChessPosition of(int square) {
+        return SQUARES[square];
+    }
+
     @Override
     public String toString() {
         return "ChessPosition{" +
@@ -55,4 +93,27 @@ public class ChessPosition {
     public int getColumn() {
         return col;
     }
+
+    /**
+     * Reads positions back as the shared instances instead of new objects.
+     */
+    public static class ChessPositionAdapter implements JsonSerializer<ChessPosition>, JsonDeserializer<ChessPosition> {
+        @Override
+        public JsonElement serialize(ChessPosition src, Type typeOfSrc, JsonSerializationContext context) {
+            JsonObject jsonObject = new JsonObject();
+            jsonObject.addProperty("row", src.row);
+            jsonObject.addProperty("col", src.col);
+            return jsonObject;
+        }
+
+        @Override
+        public ChessPosition deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
+            JsonObject jsonObject = json.getAsJsonObject();
+            try {
+                return of(jsonObject.get("row").getAsInt(), jsonObject.get("col").getAsInt());
+            } catch (RuntimeException e) {
+                throw new JsonParseException("Invalid chess position: " + json, e);
+            }
+        }
+    }
 }
@@ -0,0 +1,110 @@
+package chess;
+
+/**
+ * Reads and writes games in Forsyth-Edwards Notation, the one line format test positions
+ * are published in.
+ * <p>
+ * Only the piece placement and side to move fields are used. This engine does not track
+ * castling rights, en passant squares or move clocks, so those fields are ignored when
+ * parsing and written as "- - 0 1".
+ */
+public final class Fen {
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Fen() {
+    }
+
+    /**
+     * Builds a game from a FEN string
+     *
+     * @param fen the position, with at least the placement and side to move fields
+     * @return A new game holding that position
+     * @throws IllegalArgumentException if the string is not a valid position
+     */
+    public static ChessGame parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 2) {
+            throw new IllegalArgumentException("FEN needs placement and side to move: " + fen);
+        }
+
+        String[] ranks = fields[0].split("/");
+        if (ranks.length != 8) {
+            throw new IllegalArgumentException("FEN placement needs 8 ranks: " + fen);
+        }
+
+        ChessBoard board = new ChessBoard();
+        for (int i = 0; i < ranks.length; i++) {
+            int row = 8 - i;
+            int col = 1;
+            for (char c : ranks[i].toCharArray()) {
+                if (c >= '1' && c <= '8') {
+                    col += c - '0';
+                } else {
+                    if (col > 8) {
+                        throw new IllegalArgumentException("FEN rank " + row + " is too long: " + fen);
+                    }
+                    board.addPiece(ChessPosition.of(row, col), pieceFor(c));
+                    col++;
+                }
+            }
+            if (col != 9) {
+                throw new IllegalArgumentException("FEN rank " + row + " does not cover 8 squares: " + fen);
+            }
+        }
+
+        ChessGame.TeamColor teamTurn = switch (fields[1]) {
+            case "w" -> ChessGame.TeamColor.WHITE;
+            case "b" -> ChessGame.TeamColor.BLACK;
+            default -> throw new IllegalArgumentException("FEN side to move must be w or b: " + fen);
+        };
+        return new ChessGame(board, teamTurn);
+    }
+
+    /**
+     * Writes a game as a FEN string
+     *
+     * @param game the game to write
+     * @return The position and side to move, followed by "- - 0 1"
+     */
+    public static String format(ChessGame game) {
+        ChessBoard board = game.getBoard();
+        StringBuilder sb = new StringBuilder();
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                ChessPiece piece = board.getPiece(ChessPosition.of(row, col));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                sb.append(ChessBoard.pieceChar(piece));
+            }
+            if (empty > 0) {
+                sb.append(empty);
+            }
+            if (row > 1) {
+                sb.append('/');
+            }
+        }
+        sb.append(game.getTeamTurn() == ChessGame.TeamColor.WHITE ? " w" : " b");
+        return sb.append(" - - 0 1").toString();
+    }
+
+    private static ChessPiece pieceFor(char c) {
+        ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        ChessPiece.PieceType type = switch (Character.toLowerCase(c)) {
+            case 'k' -> ChessPiece.PieceType.KING;
+            case 'q' -> ChessPiece.PieceType.QUEEN;
+            case 'b' -> ChessPiece.PieceType.BISHOP;
+            case 'n' -> ChessPiece.PieceType.KNIGHT;
+            case 'r' -> ChessPiece.PieceType.ROOK;
+            case 'p' -> ChessPiece.PieceType.PAWN;
+            default -> throw new IllegalArgumentException("Unknown FEN piece: " + c);
+        };
+        return ChessPiece.of(color, type);
+    }
+}
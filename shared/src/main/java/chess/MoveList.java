@@ -0,0 +1,89 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * A growable buffer of {@link PackedMove} ints. The move generator fills one of these
+ * instead of building ChessMove objects, and a list can be cleared and reused for every
+ * position it is asked about.
+ */
+public class MoveList {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MoveList(int capacity) {
+        this.moves = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Adds a packed move to the end of the list
+     *
+     * @param move the packed move to add
+     */
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    /**
+     * @param index position in the list, from 0 to size() - 1
+     * @return The packed move at that position
+     */
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+        return moves[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Empties the list while keeping its buffer for reuse
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @param move the packed move to look for
+     * @return True if the list holds the same squares and promotion, ignoring flags
+     */
+    public boolean containsMove(int move) {
+        for (int i = 0; i < size; i++) {
+            if (PackedMove.sameMove(moves[i], move)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts the list to ChessMove objects for callers outside the move generator
+     *
+     * @return A new collection holding each move in the list
+     */
+    public Collection<ChessMove> toChessMoves() {
+        Collection<ChessMove> chessMoves = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            chessMoves.add(PackedMove.toChessMove(moves[i]));
+        }
+        return chessMoves;
+    }
+}
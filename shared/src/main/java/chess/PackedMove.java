@@ -0,0 +1,110 @@
+package chess;
+
+/**
+ * Encodes a move as a single int so the move generator can work without allocating
+ * ChessMove objects.
+ * <p>
+ * Bits 0-5 hold the start square and bits 6-11 the end square, as bit indexes from
+ * 0 (a1) to 63 (h8). Bits 12-14 hold the promotion piece type's ordinal plus one, or 0
+ * when there is no promotion. The bits above that are flags describing the move.
+ */
+public final class PackedMove {
+    public static final int CAPTURE = 1 << 15;
+    public static final int DOUBLE_PAWN_PUSH = 1 << 16;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int TO_SHIFT = 6;
+    private static final int PROMOTION_SHIFT = 12;
+    private static final int PROMOTION_MASK = 0x7;
+    private static final int MOVE_MASK = (1 << 15) - 1;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private PackedMove() {
+    }
+
+    /**
+     * @param from bit index of the start square
+     * @param to bit index of the end square
+     * @param flags any of the flag bits, or 0
+     * @return The packed move, without a promotion
+     */
+    public static int of(int from, int to, int flags) {
+        return from | (to << TO_SHIFT) | flags;
+    }
+
+    /**
+     * @param from bit index of the start square
+     * @param to bit index of the end square
+     * @param promotion the piece type to promote to
+     * @param flags any of the flag bits, or 0
+     * @return The packed move, promoting to the given type
+     */
+    public static int of(int from, int to, ChessPiece.PieceType promotion, int flags) {
+        return of(from, to, flags) | ((promotion.ordinal() + 1) << PROMOTION_SHIFT);
+    }
+
+    /**
+     * Packs a ChessMove, without any flags
+     *
+     * @param move the move to pack, whose positions must be on the board
+     * @return The packed move
+     */
+    public static int of(ChessMove move) {
+        int from = ChessBoard.squareIndex(move.getStartPosition());
+        int to = ChessBoard.squareIndex(move.getEndPosition());
+        return move.getPromotionPiece() == null ? of(from, to, 0) : of(from, to, move.getPromotionPiece(), 0);
+    }
+
+    /**
+     * @return Bit index of the move's start square
+     */
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    /**
+     * @return Bit index of the move's end square
+     */
+    public static int to(int move) {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    /**
+     * @return Ordinal of the promotion piece type, or ChessBoard.NO_PIECE if there is none
+     */
+    static int promotionOrdinal(int move) {
+        int promotion = (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+        return promotion == 0 ? ChessBoard.NO_PIECE : promotion - 1;
+    }
+
+    /**
+     * @return The promotion piece type, or null if the move is not a promotion
+     */
+    public static ChessPiece.PieceType promotion(int move) {
+        int promotion = (move >>> PROMOTION_SHIFT) & PROMOTION_MASK;
+        return promotion == 0 ? null : TYPES[promotion - 1];
+    }
+
+    /**
+     * @return True if the move has every bit of the given flag set
+     */
+    public static boolean hasFlag(int move, int flag) {
+        return (move & flag) == flag;
+    }
+
+    /**
+     * Compares the squares and promotion of two moves, ignoring their flags
+     *
+     * @return True if both encode the same move
+     */
+    public static boolean sameMove(int a, int b) {
+        return (a & MOVE_MASK) == (b & MOVE_MASK);
+    }
+
+    /**
+     * @return The move as a ChessMove using the shared position instances
+     */
+    public static ChessMove toChessMove(int move) {
+        return new ChessMove(ChessPosition.of(from(move)), ChessPosition.of(to(move)), promotion(move));
+    }
+}
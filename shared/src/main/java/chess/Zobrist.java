@@ -0,0 +1,32 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing of positions. A position's key is the XOR of the key
+ * for every piece on its square, plus the side key when black is to move. Since XOR is
+ * its own inverse, adding or removing a piece updates the key with a single XOR.
+ * <p>
+ * The keys come from a fixed seed so every JVM, client or server, computes the same key
+ * for the same position.
+ */
+final class Zobrist {
+    private static final long SEED = 0x2401_C4E5_5A1D_7B3FL;
+
+    /** Indexed by ChessBoard piece index, then by square */
+    static final long[][] PIECE_KEYS = new long[2 * ChessBoard.PIECE_TYPES][ChessBoard.SQUARES];
+    static final long BLACK_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (long[] keys : PIECE_KEYS) {
+            for (int square = 0; square < keys.length; square++) {
+                keys[square] = random.nextLong();
+            }
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+}
@@ -3,6 +3,12 @@ package model;
 import chess.ChessGame;
 
 public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
+    // A lobby listing entry without the board, with empty seats as null
+    public static GameData summary(int gameID, String whiteUsername, String blackUsername, String gameName) {
+        return new GameData(gameID, whiteUsername == null || whiteUsername.isEmpty() ? null : whiteUsername,
+                blackUsername == null || blackUsername.isEmpty() ? null : blackUsername, gameName, null);
+    }
+
     public Integer getGameId() {
         return gameID;
     }
@@ -4,6 +4,7 @@ import java.util.List;
 
 public class GameResponse {
     private List<GameData> games;
+    private Integer next;
 
     // Getter for games
     public List<GameData> getGames() {
@@ -13,4 +14,13 @@ public class GameResponse {
     public void setGames(List<GameData> games) {
         this.games = games;
     }
+
+    // Id to list the following page after, null on the last page
+    public Integer getNext() {
+        return next;
+    }
+
+    public void setNext(Integer next) {
+        this.next = next;
+    }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package server;
 
 import model.*;
 import com.google.gson.*;
+import java.util.ArrayList;
 import java.util.List;
 import java.io.*;
 import java.net.HttpURLConnection;
@@ -39,11 +40,28 @@ public class ServerFacade {
         return this.makeRequest("POST", path, game, Object.class, authToken);
     }
 
-//    Takes authtoken and returns a list of Games
+//    Takes authtoken and returns a list of all Games, fetching them a page at a time
     public List<GameData> fetchAllGames(String authToken) throws ServerFacadeException {
-        var path = "/game";
-        GameResponse gameResponse = this.makeRequest("GET", path, null, GameResponse.class, authToken);
-        return gameResponse.getGames();
+        List<GameData> games = new ArrayList<>();
+        Integer after = null;
+        do {
+            GameResponse page = fetchGames(authToken, after, null, false);
+            games.addAll(page.getGames());
+            after = page.getNext();
+        } while (after != null);
+        return games;
+    }
+
+//    Takes authtoken and paging options and returns one page of Games without their boards, a null after or limit uses the server default
+    public GameResponse fetchGames(String authToken, Integer after, Integer limit, boolean openOnly) throws ServerFacadeException {
+        StringBuilder path = new StringBuilder("/game?open=").append(openOnly);
+        if (after != null) {
+            path.append("&after=").append(after);
+        }
+        if (limit != null) {
+            path.append("&limit=").append(limit);
+        }
+        return this.makeRequest("GET", path.toString(), null, GameResponse.class, authToken);
     }
 
 //    Takes JoinGameData and authtoken, joins user to game as requested color and returns nothing
@@ -0,0 +1,42 @@
+package websocket.commands;
+
+import java.util.Objects;
+
+/**
+ * A CONNECT command. A client that sets moveDeltas gets a MOVE_APPLIED message after each
+ * move instead of the whole game in a LOAD_GAME. A plain CONNECT command reads as one with
+ * moveDeltas off.
+ */
+public class ConnectCommand extends UserGameCommand {
+
+    private final boolean moveDeltas;
+
+    public ConnectCommand(String authToken, Integer gameID, boolean moveDeltas) {
+        super(CommandType.CONNECT, authToken, gameID);
+        this.moveDeltas = moveDeltas;
+    }
+
+    public boolean wantsMoveDeltas() {
+        return moveDeltas;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConnectCommand)) {
+            return false;
+        }
+        if (!super.equals(o)) {
+            return false;
+        }
+        ConnectCommand that = (ConnectCommand) o;
+        return moveDeltas == that.moveDeltas;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), moveDeltas);
+    }
+}
@@ -26,7 +26,9 @@ public class UserGameCommand {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        // Asks for the whole game again in a LOAD_GAME, sent when a MOVE_APPLIED does not match the client's game
+        RESYNC
     }
 
     public CommandType getCommandType() {
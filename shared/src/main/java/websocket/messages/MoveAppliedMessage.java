@@ -0,0 +1,68 @@
+package websocket.messages;
+
+import chess.ChessGame;
+import chess.ChessMove;
+
+import java.util.Objects;
+
+/**
+ * Sent instead of LOAD_GAME after a move to clients that connected with move deltas on.
+ * The client makes the move on its own copy of the game, then checks that its ply and
+ * position key match the ones here. If either differs it asks for the whole game again
+ * with a RESYNC command.
+ */
+public class MoveAppliedMessage extends ServerMessage {
+    private final ChessMove move;
+    private final int ply;
+    private final ChessGame.GameStatus status;
+    private final long positionKey;
+
+    /**
+     * @param ply the game's ply after the move, which numbers the moves of a game in order
+     * @param status the game's status after the move
+     * @param positionKey the game's position key after the move
+     */
+    public MoveAppliedMessage(ChessMove move, int ply, ChessGame.GameStatus status, long positionKey) {
+        super(ServerMessageType.MOVE_APPLIED);
+        this.move = move;
+        this.ply = ply;
+        this.status = status;
+        this.positionKey = positionKey;
+    }
+
+    public ChessMove getMove() {
+        return move;
+    }
+
+    public int getPly() {
+        return ply;
+    }
+
+    public ChessGame.GameStatus getStatus() {
+        return status;
+    }
+
+    public long getPositionKey() {
+        return positionKey;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MoveAppliedMessage)) {
+            return false;
+        }
+        if (!super.equals(o)) {
+            return false;
+        }
+        MoveAppliedMessage that = (MoveAppliedMessage) o;
+        return ply == that.ply && positionKey == that.positionKey && Objects.equals(move, that.move) && status == that.status;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), move, ply, status, positionKey);
+    }
+}
@@ -16,7 +16,8 @@ public class ServerMessage {
     public enum ServerMessageType {
         LOAD_GAME,
         ERROR,
-        NOTIFICATION
+        NOTIFICATION,
+        MOVE_APPLIED
     }
 
     public ServerMessage(ServerMessageType type) {
@@ -57,6 +58,8 @@ public class ServerMessage {
                     return context.deserialize(json, ErrorMessage.class);
                 case NOTIFICATION:
                     return context.deserialize(json, NotificationMessage.class);
+                case MOVE_APPLIED:
+                    return context.deserialize(json, MoveAppliedMessage.class);
                 default:
                     throw new JsonParseException("Unknown server message type: " + type);
             }
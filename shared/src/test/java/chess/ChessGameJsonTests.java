@@ -0,0 +1,37 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.*;
+
+public class ChessGameJsonTests {
+
+    @Test
+    @DisplayName("Game Round Trips Through JSON")
+    public void roundTrip() throws InvalidMoveException {
+        var game = new ChessGame();
+        game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+        game.setResigned(true);
+
+        var read = new Gson().fromJson(new Gson().toJson(game), ChessGame.class);
+        Assertions.assertEquals(game, read);
+        Assertions.assertEquals(1, read.getPly());
+        Assertions.assertEquals(game.positionKey(), read.positionKey());
+    }
+
+    @Test
+    @DisplayName("Old Resign Marker Reads As Resigned")
+    public void legacyResignMarker() {
+        var gson = new Gson();
+        JsonObject json = gson.toJsonTree(new ChessGame()).getAsJsonObject();
+        json.remove("resigned");
+        JsonArray firstRow = json.getAsJsonObject("currentBoard").getAsJsonArray("board").get(0).getAsJsonArray();
+        firstRow.set(0, gson.toJsonTree(ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN)));
+
+        var read = gson.fromJson(json, ChessGame.class);
+        Assertions.assertTrue(read.isResigned());
+        Assertions.assertEquals(new ChessGame().getBoard(), read.getBoard());
+        Assertions.assertFalse(gson.fromJson(gson.toJson(new ChessGame()), ChessGame.class).isResigned());
+    }
+}
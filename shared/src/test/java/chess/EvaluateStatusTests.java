@@ -0,0 +1,50 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+public class EvaluateStatusTests {
+
+    @Test
+    @DisplayName("New Game is Ongoing")
+    public void newGameOngoing() {
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, new ChessGame().evaluateStatus());
+    }
+
+    @Test
+    @DisplayName("Side to Move in Check")
+    public void check() {
+        var game = Fen.parse("4k3/8/8/8/8/8/8/4RK2 b - - 0 1");
+        Assertions.assertEquals(ChessGame.GameStatus.CHECK, game.evaluateStatus());
+    }
+
+    @Test
+    @DisplayName("Side to Move in Checkmate")
+    public void checkmate() {
+        var game = Fen.parse("R5k1/5ppp/8/8/8/8/8/6K1 b - - 0 1");
+        Assertions.assertEquals(ChessGame.GameStatus.CHECKMATE, game.evaluateStatus());
+        Assertions.assertTrue(game.isInCheckmate(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    @DisplayName("Side to Move in Stalemate")
+    public void stalemate() {
+        var game = Fen.parse("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        Assertions.assertEquals(ChessGame.GameStatus.STALEMATE, game.evaluateStatus());
+        Assertions.assertTrue(game.isInStalemate(ChessGame.TeamColor.BLACK));
+    }
+
+    @Test
+    @DisplayName("Status Updates After Each Move")
+    public void statusAfterMoves() throws InvalidMoveException {
+        var game = new ChessGame();
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.evaluateStatus());
+
+        game.makeMove(new ChessMove(new ChessPosition(2, 6), new ChessPosition(3, 6), null));
+        game.makeMove(new ChessMove(new ChessPosition(7, 5), new ChessPosition(5, 5), null));
+        game.makeMove(new ChessMove(new ChessPosition(2, 7), new ChessPosition(4, 7), null));
+        Assertions.assertEquals(ChessGame.GameStatus.ONGOING, game.evaluateStatus());
+
+        game.makeMove(new ChessMove(new ChessPosition(8, 4), new ChessPosition(4, 8), null));
+        Assertions.assertEquals(ChessGame.GameStatus.CHECKMATE, game.evaluateStatus());
+    }
+}
@@ -0,0 +1,96 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+/**
+ * Compares perft node counts against the published results for standard test positions.
+ * Castling and en passant are not implemented, so only positions and depths where neither
+ * can occur are used.
+ */
+public class PerftTests {
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    private static final String POSITION_6 = "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+    private static final String PROMOTIONS = "n1n5/PPPk4/8/8/8/8/4Kppp/5N1N b - - 0 1";
+
+    @Test
+    @DisplayName("Starting Position Perft")
+    public void startingPosition() {
+        var game = new ChessGame();
+
+        Assertions.assertEquals(1, game.perft(0));
+        Assertions.assertEquals(20, game.perft(1));
+        Assertions.assertEquals(400, game.perft(2));
+        Assertions.assertEquals(8902, game.perft(3));
+        Assertions.assertEquals(197281, game.perft(4));
+    }
+
+    @Test
+    @DisplayName("Endgame Rook and Pawns Perft")
+    public void position3() {
+        var game = Fen.parse(POSITION_3);
+
+        Assertions.assertEquals(14, game.perft(1));
+        Assertions.assertEquals(191, game.perft(2));
+    }
+
+    @Test
+    @DisplayName("Middlegame Perft")
+    public void position6() {
+        var game = Fen.parse(POSITION_6);
+
+        Assertions.assertEquals(46, game.perft(1));
+        Assertions.assertEquals(2079, game.perft(2));
+        Assertions.assertEquals(89890, game.perft(3));
+    }
+
+    @Test
+    @DisplayName("Promotions Perft")
+    public void promotions() {
+        var game = Fen.parse(PROMOTIONS);
+
+        Assertions.assertEquals(24, game.perft(1));
+        Assertions.assertEquals(496, game.perft(2));
+        Assertions.assertEquals(9483, game.perft(3));
+    }
+
+    @Test
+    @DisplayName("Perft Leaves Game Unchanged")
+    public void perftRestoresGame() {
+        var game = Fen.parse(POSITION_6);
+        long key = game.positionKey();
+
+        game.perft(3);
+
+        Assertions.assertEquals(Fen.parse(POSITION_6), game);
+        Assertions.assertEquals(key, game.positionKey());
+    }
+
+    @Test
+    @DisplayName("Legal Moves Matches Valid Moves")
+    public void legalMovesMatchesValidMoves() {
+        var game = Fen.parse(POSITION_6);
+
+        int validMoveCount = 0;
+        for (int row = 1; row <= 8; row++) {
+            for (int col = 1; col <= 8; col++) {
+                var position = new ChessPosition(row, col);
+                var piece = game.getBoard().getPiece(position);
+                if (piece != null && piece.getTeamColor() == game.getTeamTurn()) {
+                    var moves = game.validMoves(position);
+                    Assertions.assertTrue(game.legalMoves().containsAll(moves),
+                            "legalMoves is missing moves from " + position);
+                    validMoveCount += moves.size();
+                }
+            }
+        }
+        Assertions.assertEquals(validMoveCount, game.legalMoves().size());
+    }
+
+    @Test
+    @DisplayName("FEN Round Trip")
+    public void fenRoundTrip() {
+        Assertions.assertEquals(new ChessGame(), Fen.parse(Fen.START_POSITION));
+        Assertions.assertEquals(POSITION_6.substring(0, POSITION_6.indexOf(" w ")) + " w - - 0 1",
+                Fen.format(Fen.parse(POSITION_6)));
+    }
+}